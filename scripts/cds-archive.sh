@@ -0,0 +1,84 @@
+#!/bin/bash
+
+##
+# Create an application class data sharing (AppCDS) archive for nshmp-haz.
+#
+# Runs HazardCalc, DisaggCalc, and RateCalc on a small model to record the
+# classes loaded by the command line programs and dumps those classes to a
+# shared archive. A JVM only uses the archive when started with the same
+# jar path used here.
+#
+# Usage:
+#   cds-archive.sh path/to/nshmp-haz.jar path/to/model path/to/archive.jsa
+#
+# The model directory must contain a sites.csv file.
+##
+main() {
+  [ ${#} -eq 3 ] || error_exit "Usage: cds-archive.sh jar model archive" 1;
+
+  local jar;
+  local model;
+  local archive;
+  jar=$(readlink -f "${1}");
+  model=$(readlink -f "${2}");
+  archive=$(readlink -f "${3}");
+
+  local workdir;
+  workdir=$(mktemp -d);
+  trap "rm -rf '${workdir}'" EXIT;
+
+  # Training runs
+  train "${jar}" "${workdir}" HazardCalc "${model}" "${model}/sites.csv";
+  train "${jar}" "${workdir}" DisaggCalc "${model}" "${model}/sites.csv";
+  train "${jar}" "${workdir}" RateCalc "${model}" "${model}/sites.csv";
+  cat "${workdir}"/*.classlist | sort -u > "${workdir}/classes.lst";
+
+  # Dump archive
+  java -Xshare:dump \
+      -XX:SharedClassListFile="${workdir}/classes.lst" \
+      -XX:SharedArchiveFile="${archive}" \
+      -cp "${jar}";
+}
+
+####
+# Run a program and record the classes it loads. A failed run exits with an
+# error so an archive is never created without the program's classes.
+#
+# @param $1 jar {String}
+#     The nshmp-haz jar file
+# @param $2 workdir {String}
+#     The working directory for program output and class lists
+# @param $3 class_name {String}
+#     The nshmp-haz class name to run
+# @param $@ args
+#     The program arguments
+####
+train() {
+  local jar=${1}; shift;
+  local workdir=${1}; shift;
+  local class_name=${1}; shift;
+
+  (cd "${workdir}" && java \
+      -XX:DumpLoadedClassList="${workdir}/${class_name}.classlist" \
+      -cp "${jar}" \
+      "gov.usgs.earthquake.nshmp.${class_name}" \
+      "$@" > /dev/null) \
+      || error_exit "${class_name} training run failed" 1;
+}
+
+####
+# Exit with an error message.
+#
+# @param $1 msg {String}
+#     The message for exit
+# @param $2 exit_status {Integer}
+#     The exit status
+####
+error_exit() {
+  local msg=${1}; shift;
+  local exit_status=${1}
+  echo "Error: ${msg}" >> /dev/stderr;
+  exit "${exit_status}";
+}
+
+main "$@";
@@ -7,8 +7,15 @@ main() {
   # Get name of sites file
   sites_file=$(ls /app/sites.*);
 
+  # Use class data sharing archive, if present
+  local cds_opts=();
+  if [ -f "${CDS_ARCHIVE}" ]; then
+    cds_opts=("-XX:SharedArchiveFile=${CDS_ARCHIVE}" "-Xshare:auto");
+  fi
+
   # Run nshmp-haz
   java "-Xmx${JAVA_MEMORY}" \
+      "${cds_opts[@]}" \
       -cp "/app/nshmp-haz.jar" \
       "gov.usgs.earthquake.nshmp.${CLASS_NAME}" \
       "${MODEL_PATH}" \
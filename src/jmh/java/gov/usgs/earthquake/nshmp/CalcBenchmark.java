@@ -0,0 +1,100 @@
+package gov.usgs.earthquake.nshmp;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalDouble;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.LogManager;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.util.concurrent.MoreExecutors;
+
+import gov.usgs.earthquake.nshmp.calc.CalcConfig;
+import gov.usgs.earthquake.nshmp.calc.Disaggregation;
+import gov.usgs.earthquake.nshmp.calc.EqRate;
+import gov.usgs.earthquake.nshmp.calc.Hazard;
+import gov.usgs.earthquake.nshmp.calc.HazardCalcs;
+import gov.usgs.earthquake.nshmp.calc.Site;
+import gov.usgs.earthquake.nshmp.calc.Sites;
+import gov.usgs.earthquake.nshmp.gmm.Imt;
+import gov.usgs.earthquake.nshmp.model.HazardModel;
+
+/**
+ * Single-threaded throughput of hazard, disaggregation, and earthquake rate
+ * calculations at the first site of several PEER test models.
+ *
+ * @author U.S. Geological Survey
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CalcBenchmark {
+
+  private static final Path MODELS = Path.of("etc/peer/models");
+  private static final double RETURN_PERIOD = 475.0;
+
+  @Param({ "Set1-Case1", "Set1-Case10", "Set2-Case2a" })
+  String modelId;
+
+  HazardModel model;
+  CalcConfig config;
+  Site site;
+  ExecutorService exec;
+  Hazard hazard;
+  Map<Imt, Double> imls;
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    LogManager.getLogManager().reset();
+    Path modelPath = MODELS.resolve(modelId);
+    model = HazardModel.load(modelPath);
+    config = model.config();
+    List<Site> sites = Sites.fromCsv(
+        modelPath.resolve("sites.csv"),
+        model.siteData(),
+        OptionalDouble.empty());
+    site = sites.get(0);
+    exec = MoreExecutors.newDirectExecutorService();
+    hazard = HazardCalcs.hazard(model, config, site, exec);
+    imls = DisaggCalc.imlsForReturnPeriod(hazard, RETURN_PERIOD);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    exec.shutdown();
+  }
+
+  @Benchmark
+  public Hazard hazard() {
+    return HazardCalcs.hazard(model, config, site, exec);
+  }
+
+  @Benchmark
+  public Disaggregation disaggregation() {
+    return Disaggregation.atImls(hazard, imls, exec);
+  }
+
+  @Benchmark
+  public EqRate rate() throws Exception {
+    return EqRate.callable(model, config, site).call();
+  }
+}
@@ -0,0 +1,91 @@
+package gov.usgs.earthquake.nshmp;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Return period slicing of a synthetic hazard curve file by
+ * {@link HazardMaps}, including file I/O.
+ *
+ * @author U.S. Geological Survey
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HazardMapsBenchmark {
+
+  private static final double[] IMLS = {
+      0.0025, 0.0045, 0.0075, 0.0113, 0.0169, 0.0253, 0.0380, 0.0570, 0.0854,
+      0.128, 0.192, 0.288, 0.432, 0.649, 0.973, 1.46, 2.19, 3.28, 4.92, 7.38 };
+
+  private static final List<Integer> RETURN_PERIODS = List.of(475, 975, 2475);
+
+  @Param({ "1000", "10000" })
+  int siteCount;
+
+  Path dir;
+  Path curves;
+  Logger log;
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    dir = Files.createTempDirectory("hazard-maps-benchmark");
+    curves = dir.resolve("curves.csv");
+    log = Logger.getLogger(HazardMapsBenchmark.class.getName());
+    log.setUseParentHandlers(false);
+
+    /* Monotonically decreasing annual rates, varying by site. */
+    Random random = new Random(0);
+    List<String> lines = new ArrayList<>(siteCount + 1);
+    StringBuilder header = new StringBuilder("lon,lat");
+    for (double iml : IMLS) {
+      header.append(',').append(iml);
+    }
+    lines.add(header.toString());
+    for (int i = 0; i < siteCount; i++) {
+      StringBuilder line = new StringBuilder()
+          .append(-125.0 + i * 0.01).append(',').append(35.0);
+      double scale = 0.5 + random.nextDouble();
+      for (int j = 0; j < IMLS.length; j++) {
+        line.append(',').append(String.format("%.8e", scale * 0.1 * Math.exp(-0.8 * j)));
+      }
+      lines.add(line.toString());
+    }
+    Files.write(curves, lines);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    Files.deleteIfExists(dir.resolve("map.csv"));
+    Files.deleteIfExists(curves);
+    Files.deleteIfExists(dir);
+  }
+
+  @Benchmark
+  public void slice() throws IOException {
+    HazardMaps.createDataSets(curves, RETURN_PERIODS, log);
+  }
+}
@@ -0,0 +1,81 @@
+package gov.usgs.earthquake.nshmp.www;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalDouble;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.LogManager;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.util.concurrent.MoreExecutors;
+
+import gov.usgs.earthquake.nshmp.calc.Hazard;
+import gov.usgs.earthquake.nshmp.calc.HazardCalcs;
+import gov.usgs.earthquake.nshmp.calc.Site;
+import gov.usgs.earthquake.nshmp.calc.Sites;
+import gov.usgs.earthquake.nshmp.data.XySequence;
+import gov.usgs.earthquake.nshmp.gmm.Imt;
+import gov.usgs.earthquake.nshmp.model.HazardModel;
+
+/**
+ * JSON serialization of hazard curves with the web service {@code Gson}
+ * configuration ({@link ServletUtil#GSON2}).
+ *
+ * @author U.S. Geological Survey
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+
+  private static final Path MODEL = Path.of("etc/peer/models/Set1-Case1");
+
+  Map<String, Object> response;
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    LogManager.getLogManager().reset();
+    HazardModel model = HazardModel.load(MODEL);
+    List<Site> sites = Sites.fromCsv(
+        MODEL.resolve("sites.csv"),
+        model.siteData(),
+        OptionalDouble.empty());
+    ExecutorService exec = MoreExecutors.newDirectExecutorService();
+    Hazard hazard = HazardCalcs.hazard(model, model.config(), sites.get(0), exec);
+    exec.shutdown();
+
+    /* Mirrors the structure of a hazard service response. */
+    response = new LinkedHashMap<>();
+    for (Map.Entry<Imt, XySequence> entry : hazard.curves().entrySet()) {
+      XySequence curve = entry.getValue();
+      Map<String, Object> data = new LinkedHashMap<>();
+      data.put("xs", curve.xValues().boxed().collect(Collectors.toList()));
+      data.put("ys", curve.yValues().boxed().collect(Collectors.toList()));
+      response.put(entry.getKey().name(), data);
+    }
+  }
+
+  @Benchmark
+  public String serialize() {
+    return ServletUtil.GSON2.toJson(response);
+  }
+}
@@ -10,7 +10,6 @@ import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toSet;
 
 import java.io.IOException;
-import java.io.Writer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -38,6 +37,7 @@ import com.google.common.collect.ImmutableSet;
 import com.google.common.util.concurrent.MoreExecutors;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParser;
 
 import gov.usgs.earthquake.nshmp.calc.CalcConfig;
 import gov.usgs.earthquake.nshmp.calc.Disaggregation;
@@ -131,7 +131,7 @@ public class DisaggCalc {
 
       log.info(PROGRAM + " version: " + HazardCalc.VERSION);
       Path modelPath = Paths.get(args[0]);
-      HazardModel model = HazardModel.load(modelPath);
+      HazardModel model = HazardCalc.loadModel(modelPath, log);
 
       log.info("");
       Path siteFile = Paths.get(args[1]);
@@ -142,13 +142,19 @@ public class DisaggCalc {
 
       /* Calculation configuration, possibly user supplied. */
       CalcConfig config = model.config();
+      Optional<ResultStore> store = ResultStore.fromConfig(
+          modelPath.resolve(HazardCalc.CONFIG_FILENAME),
+          Optional.empty());
       if (argCount == 3) {
         Path userConfigPath = Paths.get(args[2]);
         config = CalcConfig.copyOf(model.config())
             .extend(CalcConfig.from(userConfigPath))
             .build();
+        store = ResultStore.fromConfig(userConfigPath, store);
       }
       log.info(config.toString());
+      store.ifPresent(rs -> log.info("Result store: " + rs.directory().toAbsolutePath()));
+      String fingerprint = store.isPresent() ? ResultStore.fingerprint(modelPath) : "";
 
       /* Column header data. */
       Set<String> allColumns = columns(siteFile);
@@ -188,7 +194,7 @@ public class DisaggCalc {
             modelImts.containsAll(config.hazard.imts),
             "Config specifies IMTs not supported by model");
         double returnPeriod = config.disagg.returnPeriod;
-        calcRp(model, config, sites, returnPeriod, out, log);
+        calcRp(model, config, sites, returnPeriod, store, fingerprint, out, log);
 
       } else {
 
@@ -201,7 +207,7 @@ public class DisaggCalc {
             sites.size() == imls.size(),
             "Sites and spectra lists different sizes");
         log.info("Spectra: " + imls.size()); // 1:1 with sites
-        calcIml(model, config, sites, imls, out, log);
+        calcIml(model, config, sites, imls, store, fingerprint, out, log);
 
       }
 
@@ -277,6 +283,8 @@ public class DisaggCalc {
       CalcConfig config,
       List<Site> sites,
       double returnPeriod,
+      Optional<ResultStore> store,
+      String fingerprint,
       Path out,
       Logger log) throws IOException {
 
@@ -306,22 +314,32 @@ public class DisaggCalc {
       Hazard hazard = HazardCalcs.hazard(model, config, site, exec);
       handler.write(hazard);
 
+      /* Hazard is always written; stored disaggregations are reused. */
       Map<Imt, Double> imls = imlsForReturnPeriod(hazard, returnPeriod);
-      Disaggregation disagg = Disaggregation.atImls(hazard, imls, exec);
+      String key = ResultStore.key(
+          model.name(), fingerprint, config, site, "disagg-rp:" + returnPeriod);
+      Optional<String> stored = store.isPresent()
+          ? store.get().get(key)
+          : Optional.empty();
+      Object data;
+      if (stored.isPresent()) {
+        data = JsonParser.parseString(stored.get());
+      } else {
+        Disaggregation disagg = Disaggregation.atImls(hazard, imls, exec);
+        data = Response.data(config, imls, disagg);
+        if (store.isPresent()) {
+          store.get().put(key, GSON.toJson(data));
+        }
+      }
 
-      Response response = new Response.Builder()
-          .config(config)
-          .site(site)
-          .returnPeriod(returnPeriod)
-          .imls(imls)
-          .disagg(disagg)
-          .build();
+      Response response = new Response(
+          new Response.Metadata(site, returnPeriod, imls),
+          data);
+      String json = GSON.toJson(response);
 
       String filename = disaggFilename(site);
       Path resultPath = disaggDir.resolve(filename);
-      Writer writer = Files.newBufferedWriter(resultPath);
-      GSON.toJson(response, writer);
-      writer.close();
+      Files.writeString(resultPath, json);
 
       int count = i + 1;
       if (count % logInterval == 0) {
@@ -365,6 +383,8 @@ public class DisaggCalc {
       CalcConfig config,
       List<Site> sites,
       List<Map<Imt, Double>> imls,
+      Optional<ResultStore> store,
+      String fingerprint,
       Path out,
       Logger log) throws IOException {
 
@@ -391,21 +411,32 @@ public class DisaggCalc {
       Site site = sites.get(i);
       Map<Imt, Double> siteImls = imls.get(i);
 
-      Hazard hazard = HazardCalcs.hazard(model, config, site, exec);
-      Disaggregation disagg = Disaggregation.atImls(hazard, siteImls, exec);
+      /* A stored result skips both hazard and disaggregation. */
+      String key = ResultStore.key(
+          model.name(), fingerprint, config, site, "disagg-iml:" + siteImls);
+      Optional<String> stored = store.isPresent()
+          ? store.get().get(key)
+          : Optional.empty();
+      Object data;
+      if (stored.isPresent()) {
+        data = JsonParser.parseString(stored.get());
+      } else {
+        Hazard hazard = HazardCalcs.hazard(model, config, site, exec);
+        Disaggregation disagg = Disaggregation.atImls(hazard, siteImls, exec);
+        data = Response.data(config, siteImls, disagg);
+        if (store.isPresent()) {
+          store.get().put(key, GSON.toJson(data));
+        }
+      }
 
-      Response response = new Response.Builder()
-          .config(config)
-          .site(site)
-          .imls(siteImls)
-          .disagg(disagg)
-          .build();
+      Response response = new Response(
+          new Response.Metadata(site, null, siteImls),
+          data);
+      String json = GSON.toJson(response);
 
       String filename = disaggFilename(site);
       Path resultPath = disaggDir.resolve(filename);
-      Writer writer = Files.newBufferedWriter(resultPath);
-      GSON.toJson(response, writer);
-      writer.close();
+      Files.writeString(resultPath, json);
 
       int count = i + 1;
       if (count % logInterval == 0) {
@@ -454,54 +485,19 @@ public class DisaggCalc {
       }
     }
 
-    static final class Builder {
-
-      Site site;
-      Disaggregation disagg;
-      Double returnPeriod; // optional
-      Map<Imt, Double> imls;
-      CalcConfig config;
-
-      Builder imls(Map<Imt, Double> imls) {
-        this.imls = imls;
-        return this;
-      }
-
-      Builder returnPeriod(double returnPeriod) {
-        this.returnPeriod = returnPeriod;
-        return this;
-      }
-
-      Builder site(Site site) {
-        this.site = site;
-        return this;
-      }
-
-      Builder disagg(Disaggregation disagg) {
-        this.disagg = disagg;
-        return this;
-      }
-
-      Builder config(CalcConfig config) {
-        this.config = config;
-        return this;
-      }
-
-      Response build() {
-
-        // default toJson(imt, false, false, false)
-        List<ImtDisagg> disaggs = imls.keySet().stream()
-            .map(imt -> new ImtDisagg(imt, disagg.toJson(
-                imt,
-                config.output.dataTypes.contains(GMM),
-                config.output.dataTypes.contains(SOURCE),
-                config.output.dataTypes.contains(DISAGG_DATA))))
-            .collect(toList());
-
-        return new Response(
-            new Response.Metadata(site, returnPeriod, imls),
-            disaggs);
-      }
+    /*
+     * Disaggregations at each IML. Only this part of a response is stored;
+     * site metadata is rebuilt from the current site on reuse.
+     */
+    static Object data(CalcConfig config, Map<Imt, Double> imls, Disaggregation disagg) {
+      // default toJson(imt, false, false, false)
+      return imls.keySet().stream()
+          .map(imt -> new ImtDisagg(imt, disagg.toJson(
+              imt,
+              config.output.dataTypes.contains(GMM),
+              config.output.dataTypes.contains(SOURCE),
+              config.output.dataTypes.contains(DISAGG_DATA))))
+          .collect(toList());
     }
   }
 
@@ -5,18 +5,27 @@ import static com.google.common.base.Preconditions.checkNotNull;
 import static gov.usgs.earthquake.nshmp.Text.NEWLINE;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.OptionalDouble;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.FileHandler;
 import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import com.google.common.base.Stopwatch;
 import com.google.common.base.Throwables;
@@ -29,10 +38,14 @@ import gov.usgs.earthquake.nshmp.calc.HazardCalcs;
 import gov.usgs.earthquake.nshmp.calc.HazardExport;
 import gov.usgs.earthquake.nshmp.calc.Site;
 import gov.usgs.earthquake.nshmp.calc.Sites;
+import gov.usgs.earthquake.nshmp.gmm.Imt;
 import gov.usgs.earthquake.nshmp.internal.AppVersion.VersionInfo;
 import gov.usgs.earthquake.nshmp.internal.Logging;
 import gov.usgs.earthquake.nshmp.model.HazardModel;
 import gov.usgs.earthquake.nshmp.model.SiteData;
+import gov.usgs.earthquake.nshmp.site.GridRefinement;
+import gov.usgs.earthquake.nshmp.site.GridSites;
+import gov.usgs.earthquake.nshmp.site.NshmpPolygon;
 import gov.usgs.earthquake.nshmp.www.HazVersion;
 
 /**
@@ -50,7 +63,9 @@ public class HazardCalc {
    * to perform calculations must be specified. Under the 2-argument scenario,
    * model initialization and calculation configuration settings are drawn from
    * the default configuration for the model. Sites may be defined in a CSV or
-   * GeoJSON file.
+   * GeoJSON file, or as an NSHMP polygon and grid spacing, e.g.
+   * {@code WUS_CLIP:0.05}. Sites in map regions are generated as they are
+   * needed rather than read into memory up front.
    *
    * <p>To override any default calculation configuration settings, also supply
    * the path to a configuration file as a third argument.
@@ -98,15 +113,23 @@ public class HazardCalc {
 
       log.info(PROGRAM + " version: " + VERSION);
       Path modelPath = Paths.get(args[0]);
-      HazardModel model = HazardModel.load(modelPath);
+      HazardModel model = loadModel(modelPath, log);
 
       /* Calculation configuration, possibly user supplied. */
       CalcConfig config = model.config();
+      SiteOrder siteOrder = SiteOrder.fromConfig(
+          modelPath.resolve(CONFIG_FILENAME),
+          SiteOrder.INPUT);
+      GridRefinement refinement = GridRefinement.fromConfig(
+          modelPath.resolve(CONFIG_FILENAME),
+          GridRefinement.NONE);
       if (argCount == 3) {
         Path userConfigPath = Paths.get(args[2]);
         config = CalcConfig.copyOf(model.config())
             .extend(CalcConfig.from(userConfigPath))
             .build();
+        siteOrder = SiteOrder.fromConfig(userConfigPath, siteOrder);
+        refinement = GridRefinement.fromConfig(userConfigPath, refinement);
       }
       log.info(config.toString());
       log.info("");
@@ -118,19 +141,19 @@ public class HazardCalc {
 
       if (config.hazard.vs30s.isEmpty()) {
 
-        List<Site> sites = readSites(args[1], siteData, OptionalDouble.empty(), log);
-        log.info("Sites: " + Sites.toString(sites));
-        calc(model, config, sites, out, log);
+        Collection<Site> sites = readHazardSites(args[1], siteData, OptionalDouble.empty(), log);
+        log.info("Sites: " + toString(sites));
+        calc(model, config, sites, siteOrder, refinement, out, log);
 
       } else {
 
         for (double vs30 : config.hazard.vs30s) {
           log.info("Vs30 batch: " + vs30);
-          List<Site> sites = readSites(args[1], siteData, OptionalDouble.of(vs30), log);
-          log.info("Sites: " + Sites.toString(sites));
+          Collection<Site> sites = readHazardSites(args[1], siteData, OptionalDouble.of(vs30), log);
+          log.info("Sites: " + toString(sites));
           Path vs30dir = out.resolve("vs30-" + ((int) vs30));
           Files.createDirectory(vs30dir);
-          calc(model, config, sites, vs30dir, log);
+          calc(model, config, sites, siteOrder, refinement, vs30dir, log);
         }
 
       }
@@ -175,29 +198,91 @@ public class HazardCalc {
     }
   }
 
+  /*
+   * Map regions, whether an NSHMP polygon and spacing or a GeoJSON polygon,
+   * are gridded lazily; all other site files are read in full.
+   */
+  private static Collection<Site> readHazardSites(
+      String siteSpec,
+      SiteData siteData,
+      OptionalDouble vs30,
+      Logger log) throws IOException {
+
+    Matcher polygonSpec = POLYGON_SITES.matcher(siteSpec);
+    if (polygonSpec.matches()) {
+      NshmpPolygon polygon = NshmpPolygon.valueOf(polygonSpec.group(1));
+      double spacing = Double.parseDouble(polygonSpec.group(2));
+      log.info("Sites region: " + polygon);
+      return GridSites.create(polygon, spacing, siteData, vs30);
+    }
+    if (siteSpec.toLowerCase().endsWith(".geojson")) {
+      Path path = Paths.get(siteSpec);
+      Optional<GridSites> grid = GridSites.fromGeoJson(path, siteData, vs30);
+      if (grid.isPresent()) {
+        log.info("Sites file: " + path.toAbsolutePath().normalize());
+        return grid.orElseThrow();
+      }
+    }
+    return readSites(siteSpec, siteData, vs30, log);
+  }
+
+  private static String toString(Collection<Site> sites) {
+    return (sites instanceof List)
+        ? Sites.toString((List<Site>) sites)
+        : sites.toString() + " " + sites.size() + " sites";
+  }
+
   /* Compute hazard curves using the supplied model, config, and sites. */
   private static void calc(
       HazardModel model,
       CalcConfig config,
-      List<Site> sites,
+      Collection<Site> sites,
+      SiteOrder siteOrder,
+      GridRefinement refinement,
       Path out,
       Logger log) throws IOException {
 
+    if (refinement.enabled() && sites instanceof GridSites) {
+      calcAdaptive(model, config, (GridSites) sites, refinement, out, log);
+      return;
+    }
+
     int threadCount = config.performance.threadCount.value();
     final ExecutorService exec = initExecutor(threadCount);
     log.info("Threads: " + ((ThreadPoolExecutor) exec).getCorePoolSize());
+
+    /*
+     * Reordered sites are held in memory; outputs are restored below. Map
+     * grids are already generated row by row and are never materialized.
+     */
+    Iterable<Site> queue = sites;
+    List<Site> siteList = null;
+    int[] order = null;
+    if (siteOrder != SiteOrder.INPUT && sites instanceof GridSites) {
+      log.info("Site order: " + siteOrder + " ignored for map grids");
+    } else if (siteOrder != SiteOrder.INPUT) {
+      List<Site> inputSites = List.copyOf(sites);
+      int[] siteIndices = siteOrder.order(inputSites);
+      queue = () -> Arrays.stream(siteIndices).mapToObj(inputSites::get).iterator();
+      siteList = inputSites;
+      order = siteIndices;
+      log.info("Site order: " + siteOrder);
+    }
     log.info(PROGRAM + ": calculating ...");
 
-    boolean namedSites = sites.get(0).name() != Site.NO_NAME;
+    boolean namedSites = sites.iterator().next().name() != Site.NO_NAME;
     HazardExport handler = HazardExport.create(model, config, namedSites, out);
     Stopwatch stopwatch = Stopwatch.createStarted();
     int logInterval = sites.size() < 100 ? 1 : sites.size() < 1000 ? 10 : 100;
+    PerformanceReport report = PerformanceReport.start(PROGRAM, threadCount);
 
-    for (int i = 0; i < sites.size(); i++) {
-      Site site = sites.get(i);
+    int count = 0;
+    for (Site site : queue) {
+      long start = System.nanoTime();
       Hazard hazard = HazardCalcs.hazard(model, config, site, exec);
       handler.write(hazard);
-      int count = i + 1;
+      report.site(site, System.nanoTime() - start);
+      count++;
       if (count % logInterval == 0) {
         log.info(String.format(
             "     %s of %s sites completed in %s",
@@ -205,9 +290,97 @@ public class HazardCalc {
       }
     }
     exec.shutdown();
+    if (order != null) {
+      restoreOrder(out, siteList, order, log);
+    }
     log.info(String.format(
         PROGRAM + ": %s sites completed in %s",
         sites.size(), stopwatch));
+    report.write(out.resolve(PROGRAM + "-performance.json"));
+  }
+
+  /*
+   * Compute hazard curves at the subset of map grid nodes required by an
+   * adaptive refinement. Grid cells are refined where ground motions at the
+   * output return periods vary by more than the refinement tolerance; the
+   * final cells are written to grid-cells.csv. Sites are written in refinement
+   * order, so any site order is ignored.
+   */
+  private static void calcAdaptive(
+      HazardModel model,
+      CalcConfig config,
+      GridSites grid,
+      GridRefinement refinement,
+      Path out,
+      Logger log) throws IOException {
+
+    int threadCount = config.performance.threadCount.value();
+    final ExecutorService exec = initExecutor(threadCount);
+    log.info("Threads: " + ((ThreadPoolExecutor) exec).getCorePoolSize());
+    log.info("Grid refinement: " + refinement);
+    log.info(PROGRAM + ": calculating ...");
+
+    HazardExport handler = HazardExport.create(model, config, false, out);
+    Stopwatch stopwatch = Stopwatch.createStarted();
+    PerformanceReport report = PerformanceReport.start(PROGRAM, threadCount);
+    List<Integer> returnPeriods = config.output.returnPeriods;
+    AtomicInteger count = new AtomicInteger();
+
+    List<GridRefinement.Cell> cells = refinement.refine(grid, site -> {
+      long start = System.nanoTime();
+      Hazard hazard = HazardCalcs.hazard(model, config, site, exec);
+      try {
+        handler.write(hazard);
+      } catch (IOException ioe) {
+        throw new UncheckedIOException(ioe);
+      }
+      report.site(site, System.nanoTime() - start);
+      if (count.incrementAndGet() % 100 == 0) {
+        log.info(String.format(
+            "     %s sites completed in %s",
+            count.get(), stopwatch));
+      }
+      return groundMotions(hazard, returnPeriods);
+    });
+    exec.shutdown();
+    GridRefinement.writeCells(cells, out.resolve("grid-cells.csv"));
+    log.info(String.format(
+        PROGRAM + ": %s of %s grid sites completed in %s",
+        count.get(), grid.size(), stopwatch));
+    report.write(out.resolve(PROGRAM + "-performance.json"));
+  }
+
+  /* Ground motions at each return period for each IMT. */
+  private static double[] groundMotions(Hazard hazard, List<Integer> returnPeriods) {
+    List<Double> values = new ArrayList<>();
+    for (int returnPeriod : returnPeriods) {
+      Map<Imt, Double> imls = DisaggCalc.imlsForReturnPeriod(hazard, returnPeriod);
+      values.addAll(imls.values());
+    }
+    return values.stream().mapToDouble(Double::doubleValue).toArray();
+  }
+
+  /*
+   * Rewrite CSV results in the order sites were supplied. Files that do not
+   * hold exactly one row per site in processing order are left as written.
+   */
+  private static void restoreOrder(
+      Path out,
+      List<Site> sites,
+      int[] order,
+      Logger log) throws IOException {
+
+    List<Path> files;
+    try (Stream<Path> paths = Files.walk(out)) {
+      files = paths
+          .filter(path -> path.getFileName().toString().endsWith(".csv"))
+          .collect(Collectors.toList());
+    }
+    for (Path file : files) {
+      if (!SiteOrder.restore(file, sites, order)) {
+        log.warning("Unable to restore site order: " + file);
+      }
+    }
   }
 
   private static ExecutorService initExecutor(int threadCount) {
@@ -218,6 +391,21 @@ public class HazardCalc {
     }
   }
 
+  /*
+   * Load a model, logging the elapsed time. Model parsing is often the
+   * dominant cost of short runs with few sites. A loaded model cannot be
+   * snapshotted and reloaded here: HazardModel and its sources and trees are
+   * nshmp-lib types that are not serializable and have no public builders, so
+   * a binary model format belongs in nshmp-lib. This program reduces JVM
+   * startup instead (see scripts/cds-archive.sh).
+   */
+  static HazardModel loadModel(Path path, Logger log) {
+    Stopwatch stopwatch = Stopwatch.createStarted();
+    HazardModel model = HazardModel.load(path);
+    log.info("Model loaded: " + model.name() + " (" + stopwatch + ")");
+    return model;
+  }
+
   static final String TMP_LOG = "nshmp-haz-log";
 
   static Path createTempLog() {
@@ -267,6 +455,8 @@ public class HazardCalc {
   }
 
   private static final String PROGRAM = HazardCalc.class.getSimpleName();
+  static final String CONFIG_FILENAME = "calc-config.json";
+  private static final Pattern POLYGON_SITES = Pattern.compile("([A-Z0-9_]+):(\\d*\\.?\\d+)");
   private static final String USAGE_COMMAND =
       "java -cp nshmp-haz.jar gov.usgs.earthquake.nshmp.Hazard model sites [config]";
   private static final String USAGE_URL1 =
@@ -286,6 +476,8 @@ public class HazardCalc {
       .append(NEWLINE)
       .append("  'sites' is a *.csv file or *.geojson file of sites and data")
       .append(NEWLINE)
+      .append("     - or an NSHMP polygon and grid spacing, e.g. WUS_CLIP:0.05")
+      .append(NEWLINE)
       .append("     - site class and basin terms are optional")
       .append(NEWLINE)
       .append("  'config' (optional) supplies a calculation configuration")
@@ -0,0 +1,237 @@
+package gov.usgs.earthquake.nshmp;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.OperatingSystemMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.stream.Collectors;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import gov.usgs.earthquake.nshmp.calc.Site;
+
+/**
+ * Run-level performance summary for command line calculations. Records the
+ * wall time of each site and, using JVM management beans, CPU, garbage
+ * collection, and heap usage over the run. The report is written as JSON to
+ * the output directory alongside the program log.
+ *
+ * @author U.S. Geological Survey
+ */
+final class PerformanceReport {
+
+  private static final Gson GSON = new GsonBuilder()
+      .setPrettyPrinting()
+      .serializeSpecialFloatingPointValues()
+      .create();
+
+  /* Upper bounds of site time histogram bins, in seconds. */
+  private static final double[] BINS = { 0.1, 0.5, 1, 2, 5, 10, 30, 60, 300 };
+
+  private static final int SLOWEST_COUNT = 10;
+  private static final int SCALE = 3;
+
+  private final String program;
+  private final int threads;
+  private final long startNanos;
+  private final long startCpuNanos;
+  private final long startGcMillis;
+  private final long startGcCount;
+
+  /* Site times are kept as primitives; only the slowest sites are retained. */
+  private long[] siteNanos = new long[1024];
+  private int siteCount;
+  private final PriorityQueue<SiteTime> slowest = new PriorityQueue<>(
+      Comparator.comparingLong((SiteTime siteTime) -> siteTime.nanos));
+
+  private PerformanceReport(String program, int threads) {
+    this.program = program;
+    this.threads = threads;
+    ManagementFactory.getMemoryPoolMXBeans().forEach(MemoryPoolMXBean::resetPeakUsage);
+    startNanos = System.nanoTime();
+    startCpuNanos = processCpuNanos();
+    startGcMillis = gcMillis();
+    startGcCount = gcCount();
+  }
+
+  /**
+   * Start recording a run.
+   *
+   * @param program the name of the program
+   * @param threads the number of calculation threads
+   */
+  static PerformanceReport start(String program, int threads) {
+    return new PerformanceReport(program, threads);
+  }
+
+  /**
+   * Record the time to calculate and write results for a site.
+   *
+   * @param site the site
+   * @param nanos the elapsed time in nanoseconds
+   */
+  void site(Site site, long nanos) {
+    if (siteCount == siteNanos.length) {
+      siteNanos = Arrays.copyOf(siteNanos, siteCount * 2);
+    }
+    siteNanos[siteCount++] = nanos;
+    if (slowest.size() < SLOWEST_COUNT) {
+      slowest.add(new SiteTime(site, nanos));
+    } else if (nanos > slowest.peek().nanos) {
+      slowest.poll();
+      slowest.add(new SiteTime(site, nanos));
+    }
+  }
+
+  /**
+   * Stop recording and write the report as JSON.
+   *
+   * @param path the output file
+   */
+  void write(Path path) throws IOException {
+    Summary summary = new Summary(this);
+    try (Writer writer = Files.newBufferedWriter(path)) {
+      GSON.toJson(summary, writer);
+    }
+  }
+
+  /* Process CPU time, if supported by the JVM; otherwise -1. */
+  private static long processCpuNanos() {
+    OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+    if (os instanceof com.sun.management.OperatingSystemMXBean) {
+      return ((com.sun.management.OperatingSystemMXBean) os).getProcessCpuTime();
+    }
+    return -1;
+  }
+
+  private static long gcMillis() {
+    return ManagementFactory.getGarbageCollectorMXBeans().stream()
+        .mapToLong(GarbageCollectorMXBean::getCollectionTime)
+        .filter(time -> time > 0)
+        .sum();
+  }
+
+  private static long gcCount() {
+    return ManagementFactory.getGarbageCollectorMXBeans().stream()
+        .mapToLong(GarbageCollectorMXBean::getCollectionCount)
+        .filter(count -> count > 0)
+        .sum();
+  }
+
+  /* Sum of per-pool peaks; an upper bound on the true heap peak. */
+  private static long peakHeapBytes() {
+    return ManagementFactory.getMemoryPoolMXBeans().stream()
+        .filter(pool -> pool.getType() == MemoryType.HEAP)
+        .mapToLong(pool -> pool.getPeakUsage().getUsed())
+        .sum();
+  }
+
+  private static double seconds(long nanos) {
+    return Maths.round(nanos / 1e9, SCALE);
+  }
+
+  private static final class SiteTime {
+
+    final String name;
+    final double longitude;
+    final double latitude;
+    final transient long nanos;
+    final double seconds;
+
+    SiteTime(Site site, long nanos) {
+      this.name = site.name();
+      this.longitude = site.location().longitude;
+      this.latitude = site.location().latitude;
+      this.nanos = nanos;
+      this.seconds = seconds(nanos);
+    }
+  }
+
+  @SuppressWarnings("unused")
+  private static final class Summary {
+
+    final String program;
+    final int threads;
+    final int sites;
+    final double wallSeconds;
+    final Double cpuSeconds;
+    final Double threadUtilization;
+    final Map<String, Double> siteSeconds = new LinkedHashMap<>();
+    final Map<String, Integer> siteHistogram = new LinkedHashMap<>();
+    final List<SiteTime> slowestSites;
+    final double gcSeconds;
+    final long gcCount;
+    final double peakHeapMb;
+    final double maxHeapMb;
+
+    Summary(PerformanceReport report) {
+      long wallNanos = System.nanoTime() - report.startNanos;
+      long cpuNanos = processCpuNanos();
+
+      program = report.program;
+      threads = report.threads;
+      sites = report.siteCount;
+      wallSeconds = seconds(wallNanos);
+      if (cpuNanos < 0 || report.startCpuNanos < 0) {
+        cpuSeconds = null;
+        threadUtilization = null;
+      } else {
+        cpuSeconds = seconds(cpuNanos - report.startCpuNanos);
+        threadUtilization = Maths.round(
+            (double) (cpuNanos - report.startCpuNanos) / (wallNanos * report.threads),
+            SCALE);
+      }
+
+      long[] nanos = Arrays.copyOf(report.siteNanos, report.siteCount);
+      Arrays.sort(nanos);
+      if (nanos.length > 0) {
+        siteSeconds.put("min", seconds(nanos[0]));
+        siteSeconds.put("mean", seconds((long) Arrays.stream(nanos).average().orElse(0)));
+        siteSeconds.put("p50", seconds(percentile(nanos, 0.50)));
+        siteSeconds.put("p90", seconds(percentile(nanos, 0.90)));
+        siteSeconds.put("p99", seconds(percentile(nanos, 0.99)));
+        siteSeconds.put("max", seconds(nanos[nanos.length - 1]));
+      }
+
+      int[] counts = new int[BINS.length + 1];
+      for (long n : nanos) {
+        double s = n / 1e9;
+        int bin = 0;
+        while (bin < BINS.length && s > BINS[bin]) {
+          bin++;
+        }
+        counts[bin]++;
+      }
+      for (int i = 0; i < BINS.length; i++) {
+        siteHistogram.put("<=" + BINS[i] + "s", counts[i]);
+      }
+      siteHistogram.put(">" + BINS[BINS.length - 1] + "s", counts[BINS.length]);
+
+      slowestSites = report.slowest.stream()
+          .sorted(Comparator.comparingLong((SiteTime siteTime) -> siteTime.nanos).reversed())
+          .collect(Collectors.toList());
+
+      gcSeconds = Maths.round((gcMillis() - report.startGcMillis) / 1e3, SCALE);
+      gcCount = gcCount() - report.startGcCount;
+      peakHeapMb = Maths.round(peakHeapBytes() / 1048576.0, 1);
+      maxHeapMb = Maths.round(Runtime.getRuntime().maxMemory() / 1048576.0, 1);
+    }
+
+    private static long percentile(long[] sorted, double p) {
+      int index = (int) Math.ceil(p * sorted.length) - 1;
+      return sorted[Math.max(0, index)];
+    }
+  }
+}
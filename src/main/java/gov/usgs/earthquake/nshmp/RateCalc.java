@@ -98,7 +98,7 @@ public class RateCalc {
 
       log.info(PROGRAM + " version: " + HazardCalc.VERSION);
       Path modelPath = Paths.get(args[0]);
-      HazardModel model = HazardModel.load(modelPath);
+      HazardModel model = HazardCalc.loadModel(modelPath, log);
 
       CalcConfig config = model.config();
       if (argCount == 3) {
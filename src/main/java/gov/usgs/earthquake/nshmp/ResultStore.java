@@ -0,0 +1,339 @@
+package gov.usgs.earthquake.nshmp;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import gov.usgs.earthquake.nshmp.calc.CalcConfig;
+import gov.usgs.earthquake.nshmp.calc.Site;
+import gov.usgs.earthquake.nshmp.geo.Location;
+
+/**
+ * A persistent, size-bounded store of calculation results. Results are JSON
+ * documents stored as individual compressed files in a directory and are keyed
+ * by site location (as a geohash), site parameters, model, calculation
+ * configuration, and program version, so a result is only reused for an
+ * identical calculation. A model is identified by its name and a
+ * {@link #fingerprint(Path) fingerprint} of its files, so results are not
+ * reused after a model is edited in place. When the store exceeds its maximum
+ * size, the least recently used results are removed.
+ *
+ * <p>A store may be shared by concurrent readers and writers, including
+ * separate processes; results are written to temporary files and moved into
+ * place. The size of a store shared by several processes is enforced
+ * approximately.
+ *
+ * <p>Command line programs use a store if the {@code performance.resultStore}
+ * field of a calculation configuration file names a directory; the optional
+ * {@code performance.resultStoreSize} field sets the maximum size of the store
+ * in megabytes. These fields are not part of the written
+ * {@code calc-config.json}.
+ *
+ * @author U.S. Geological Survey
+ */
+public final class ResultStore {
+
+  /** Default maximum store size in megabytes. */
+  public static final long DEFAULT_SIZE_MB = 1024;
+
+  private static final String GEOHASH_CHARS = "0123456789bcdefghjkmnpqrstuvwxyz";
+  private static final int GEOHASH_PRECISION = 12;
+  private static final String SUFFIX = ".json.gz";
+
+  /* When evicting, shrink the store to this fraction of its maximum size. */
+  private static final double EVICTION_TARGET = 0.9;
+
+  private final Path directory;
+  private final long maxBytes;
+  private final AtomicLong size;
+
+  private ResultStore(Path directory, long maxBytes, long size) {
+    this.directory = directory;
+    this.maxBytes = maxBytes;
+    this.size = new AtomicLong(size);
+  }
+
+  /**
+   * Open a store, creating its directory if necessary.
+   *
+   * @param directory of the store
+   * @param maxBytes the maximum size of the store in bytes
+   */
+  public static ResultStore open(Path directory, long maxBytes) throws IOException {
+    checkArgument(maxBytes > 0, "Max size [%s] must be positive", maxBytes);
+    Files.createDirectories(directory);
+    long size = 0;
+    for (Path file : files(directory)) {
+      size += sizeOf(file);
+    }
+    return new ResultStore(directory, maxBytes, size);
+  }
+
+  /**
+   * Open the store named by the {@code performance.resultStore} field of a
+   * calculation configuration file, if present.
+   *
+   * @param config the configuration file, which need not exist
+   * @param defaultStore the store to use if the field is absent
+   */
+  static Optional<ResultStore> fromConfig(
+      Path config,
+      Optional<ResultStore> defaultStore) throws IOException {
+
+    if (!Files.exists(config)) {
+      return defaultStore;
+    }
+    try (Reader reader = Files.newBufferedReader(config)) {
+      JsonObject json = JsonParser.parseReader(reader).getAsJsonObject();
+      JsonElement performance = json.get("performance");
+      if (performance == null || !performance.getAsJsonObject().has("resultStore")) {
+        return defaultStore;
+      }
+      JsonObject perf = performance.getAsJsonObject();
+      long sizeMb = perf.has("resultStoreSize")
+          ? perf.get("resultStoreSize").getAsLong()
+          : DEFAULT_SIZE_MB;
+      return Optional.of(open(
+          config.resolveSibling(perf.get("resultStore").getAsString()),
+          sizeMb * 1024 * 1024));
+    }
+  }
+
+  /**
+   * Return a fingerprint of a model: a hash of its absolute path and of the
+   * relative path, size, and last modified time of every file it contains. The
+   * fingerprint changes when any model file is added, removed, or modified.
+   * Computing a fingerprint walks the whole model, so callers should compute it
+   * once per model load. A path that does not exist, such as a model read from
+   * a JAR file, is fingerprinted by its path alone.
+   *
+   * @param model the path to a model directory
+   */
+  public static String fingerprint(Path model) throws IOException {
+    Path root = model.toAbsolutePath().normalize();
+    Hasher hasher = Hashing.sha256().newHasher().putString(root.toString(), UTF_8);
+    if (Files.exists(root)) {
+      List<Path> files;
+      try (Stream<Path> paths = Files.walk(root)) {
+        files = paths.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+      }
+      for (Path file : files) {
+        hasher.putString(root.relativize(file).toString(), UTF_8)
+            .putLong(Files.size(file))
+            .putLong(Files.getLastModifiedTime(file).toMillis());
+      }
+    }
+    return hasher.hash().toString().substring(0, 16);
+  }
+
+  /**
+   * Create the key for a calculation at a site.
+   *
+   * @param model the model name
+   * @param fingerprint of the model files; see {@link #fingerprint(Path)}
+   * @param config the base calculation configuration
+   * @param site of the calculation
+   * @param variant a description of the type of result and any parameters of
+   *        the calculation not captured by {@code config}, e.g.
+   *        {@code "disagg:2475"}
+   */
+  public static String key(
+      String model,
+      String fingerprint,
+      CalcConfig config,
+      Site site,
+      String variant) {
+
+    String calc = Hashing.sha256()
+        .hashString(
+            String.join(
+                "\n", model, fingerprint, config.toString(), variant, HazardCalc.VERSION),
+            UTF_8)
+        .toString()
+        .substring(0, 16);
+    return String.format(
+        "%s_%s_%s_%s_%s",
+        geohash(site.location(), GEOHASH_PRECISION),
+        site.vs30(),
+        site.z1p0(),
+        site.z2p5(),
+        calc);
+  }
+
+  /**
+   * Return the geohash of a location. Longitudes are normalized to the range
+   * [-180..180).
+   *
+   * @param location to encode
+   * @param precision the number of characters in the hash
+   */
+  public static String geohash(Location location, int precision) {
+    checkArgument(precision > 0 && precision <= 12, "Precision [%s] not in [1..12]", precision);
+    double lon = ((location.longitude + 180.0) % 360.0 + 360.0) % 360.0 - 180.0;
+    double lat = location.latitude;
+    double minLon = -180.0;
+    double maxLon = 180.0;
+    double minLat = -90.0;
+    double maxLat = 90.0;
+    StringBuilder hash = new StringBuilder(precision);
+    boolean even = true;
+    int bits = 0;
+    int ch = 0;
+    while (hash.length() < precision) {
+      if (even) {
+        double mid = (minLon + maxLon) / 2;
+        if (lon >= mid) {
+          ch = (ch << 1) | 1;
+          minLon = mid;
+        } else {
+          ch <<= 1;
+          maxLon = mid;
+        }
+      } else {
+        double mid = (minLat + maxLat) / 2;
+        if (lat >= mid) {
+          ch = (ch << 1) | 1;
+          minLat = mid;
+        } else {
+          ch <<= 1;
+          maxLat = mid;
+        }
+      }
+      even = !even;
+      if (++bits == 5) {
+        hash.append(GEOHASH_CHARS.charAt(ch));
+        bits = 0;
+        ch = 0;
+      }
+    }
+    return hash.toString();
+  }
+
+  /**
+   * Return the stored result for a key, if present.
+   *
+   * @param key of the result
+   */
+  public Optional<String> get(String key) throws IOException {
+    Path file = path(key);
+    try (InputStream in = new GZIPInputStream(Files.newInputStream(file))) {
+      String json = new String(in.readAllBytes(), UTF_8);
+      Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+      return Optional.of(json);
+    } catch (NoSuchFileException e) {
+      return Optional.empty();
+    }
+  }
+
+  /**
+   * Store a result, replacing any existing result for the key.
+   *
+   * @param key of the result
+   * @param json the result
+   */
+  public void put(String key, String json) throws IOException {
+    Path file = path(key);
+    Files.createDirectories(file.getParent());
+    Path tmp = Files.createTempFile(file.getParent(), key, ".tmp");
+    try {
+      try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(tmp))) {
+        out.write(json.getBytes(UTF_8));
+      }
+      long previous = sizeOf(file);
+      long added = Files.size(tmp);
+      Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      if (size.addAndGet(added - previous) > maxBytes) {
+        evict();
+      }
+    } finally {
+      Files.deleteIfExists(tmp);
+    }
+  }
+
+  /** The directory of this store. */
+  public Path directory() {
+    return directory;
+  }
+
+  /** The approximate size of this store in bytes. */
+  public long size() {
+    return size.get();
+  }
+
+  /* Results are grouped in subdirectories by geohash prefix. */
+  private Path path(String key) {
+    return directory.resolve(key.substring(0, 3)).resolve(key + SUFFIX);
+  }
+
+  /* Remove the least recently used results. */
+  private synchronized void evict() throws IOException {
+    if (size.get() <= maxBytes) {
+      return;
+    }
+    List<Path> files = files(directory);
+    files.sort(Comparator.comparing(ResultStore::lastModified));
+    long target = (long) (maxBytes * EVICTION_TARGET);
+    long total = 0;
+    for (Path file : files) {
+      total += sizeOf(file);
+    }
+    for (Path file : files) {
+      if (total <= target) {
+        break;
+      }
+      long fileSize = sizeOf(file);
+      Files.deleteIfExists(file);
+      total -= fileSize;
+    }
+    size.set(total);
+  }
+
+  private static List<Path> files(Path directory) throws IOException {
+    try (Stream<Path> paths = Files.walk(directory, 2)) {
+      return paths
+          .filter(path -> path.getFileName().toString().endsWith(SUFFIX))
+          .collect(Collectors.toCollection(ArrayList::new));
+    }
+  }
+
+  /* File attributes, or zero, for files removed by another thread. */
+  private static long sizeOf(Path file) {
+    try {
+      return Files.size(file);
+    } catch (IOException e) {
+      return 0L;
+    }
+  }
+
+  private static long lastModified(Path file) {
+    try {
+      return Files.getLastModifiedTime(file).toMillis();
+    } catch (IOException e) {
+      return 0L;
+    }
+  }
+}
@@ -0,0 +1,510 @@
+package gov.usgs.earthquake.nshmp;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static gov.usgs.earthquake.nshmp.Text.NEWLINE;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.logging.FileHandler;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+
+import gov.usgs.earthquake.nshmp.calc.CalcConfig;
+import gov.usgs.earthquake.nshmp.calc.Disaggregation;
+import gov.usgs.earthquake.nshmp.calc.Hazard;
+import gov.usgs.earthquake.nshmp.calc.HazardCalcs;
+import gov.usgs.earthquake.nshmp.calc.HazardExport;
+import gov.usgs.earthquake.nshmp.calc.Site;
+import gov.usgs.earthquake.nshmp.calc.ThreadCount;
+import gov.usgs.earthquake.nshmp.data.XySequence;
+import gov.usgs.earthquake.nshmp.geo.Location;
+import gov.usgs.earthquake.nshmp.gmm.Imt;
+import gov.usgs.earthquake.nshmp.internal.Logging;
+import gov.usgs.earthquake.nshmp.model.HazardModel;
+import gov.usgs.earthquake.nshmp.model.SiteData;
+import gov.usgs.earthquake.nshmp.site.CybershakeSite;
+import gov.usgs.earthquake.nshmp.site.NshmpSite;
+import gov.usgs.earthquake.nshmp.site.NuregSite;
+
+/**
+ * Precomputed hazard at the NSHMP reference sites. A site bundle holds hazard
+ * curves and disaggregations at 475, 975, and 2475 year return periods for
+ * every {@link NshmpSite}, {@link NuregSite}, and {@link CybershakeSite} within
+ * the bounds of a model, at each Vs30 of the model's site classes.
+ *
+ * <p>Results are stored as individually compressed JSON documents in a single
+ * indexed file. The index is read when a bundle is opened; each result is then
+ * served with one positioned read and does not require the model to be
+ * loaded. Results are keyed by site group ({@code nshmp}, {@code nureg}, or
+ * {@code cybershake}), site id (e.g. {@code LOS_ANGELES_CA}), and Vs30.
+ *
+ * <p>Use {@link #main(String[])} to create a bundle and {@link #open(Path)} to
+ * read one.
+ *
+ * @author U.S. Geological Survey
+ */
+public final class SiteBundle implements Closeable {
+
+  /** Return periods, in years, at which hazard is disaggregated. */
+  public static final List<Integer> RETURN_PERIODS = List.of(475, 975, 2475);
+
+  /** Bundle file name. */
+  public static final String FILENAME = "site-bundle.bin";
+
+  private static final byte[] MAGIC = "NSHMPSB1".getBytes(UTF_8);
+
+  private static final Gson GSON = new GsonBuilder()
+      .serializeSpecialFloatingPointValues()
+      .serializeNulls()
+      .create();
+
+  private final FileChannel channel;
+  private final String header;
+  private final Map<String, long[]> index;
+
+  private SiteBundle(FileChannel channel, String header, Map<String, long[]> index) {
+    this.channel = channel;
+    this.header = header;
+    this.index = index;
+  }
+
+  /**
+   * Entry point for the creation of a site bundle.
+   *
+   * <p>Computes hazard and disaggregations for all reference sites within the
+   * bounds of a model using the model's calculation configuration, or one
+   * extended by a user supplied configuration. The bundle is written to
+   * {@code site-bundle.bin} in the configured output directory.
+   *
+   * @param args [model, (config)]
+   */
+  public static void main(String[] args) {
+
+    /* Delegate to run which has a return value for testing. */
+
+    Optional<String> status = run(args);
+    if (status.isPresent()) {
+      System.err.print(status.get());
+      System.exit(1);
+    }
+    System.exit(0);
+  }
+
+  static Optional<String> run(String[] args) {
+    int argCount = args.length;
+
+    if (argCount < 1 || argCount > 2) {
+      return Optional.of(USAGE);
+    }
+
+    Logging.init();
+    Logger log = Logger.getLogger(SiteBundle.class.getName());
+    Path tmpLog = HazardCalc.createTempLog();
+
+    try {
+      FileHandler fh = new FileHandler(checkNotNull(tmpLog.getFileName()).toString());
+      fh.setFormatter(new Logging.ConsoleFormatter());
+      log.getParent().addHandler(fh);
+
+      log.info(PROGRAM + " version: " + HazardCalc.VERSION);
+      Path modelPath = Paths.get(args[0]);
+      HazardModel model = HazardCalc.loadModel(modelPath, log);
+
+      CalcConfig config = model.config();
+      if (argCount == 2) {
+        Path userConfigPath = Paths.get(args[1]);
+        config = CalcConfig.copyOf(model.config())
+            .extend(CalcConfig.from(userConfigPath))
+            .build();
+      }
+      log.info(config.toString());
+      log.info("");
+
+      Path out = HazardExport.createDirectory(config.output.directory);
+
+      calc(model, config, out.resolve(FILENAME), log);
+      log.info(PROGRAM + ": finished");
+
+      /* Transfer log and write config, windows requires fh.close() */
+      fh.close();
+      Files.move(tmpLog, out.resolve(PROGRAM + ".log"));
+      config.write(out);
+
+      return Optional.empty();
+
+    } catch (Exception e) {
+      return HazardCalc.handleError(e, log, tmpLog, args, PROGRAM, USAGE);
+    }
+  }
+
+  /*
+   * Compute hazard and disaggregations at each reference site and Vs30 and
+   * write the results to a bundle. Results are buffered to the bundle file as
+   * they are completed; the index and header are appended last.
+   */
+  private static void calc(
+      HazardModel model,
+      CalcConfig config,
+      Path bundle,
+      Logger log) throws IOException {
+
+    ExecutorService exec = null;
+    ThreadCount threadCount = config.performance.threadCount;
+    if (threadCount == ThreadCount.ONE) {
+      exec = MoreExecutors.newDirectExecutorService();
+      log.info("Threads: Running on calling thread");
+    } else {
+      exec = Executors.newFixedThreadPool(threadCount.value());
+      log.info("Threads: " + ((ThreadPoolExecutor) exec).getCorePoolSize());
+    }
+
+    Map<String, SiteEntry> sites = referenceSites(model);
+    List<Integer> vs30s = model.siteClasses().values().stream()
+        .map(vs30 -> (int) Math.round(vs30))
+        .distinct()
+        .sorted()
+        .collect(Collectors.toList());
+    log.info("Sites: " + sites.size() + " reference sites within model bounds");
+    log.info("Vs30s: " + vs30s);
+    log.info(PROGRAM + ": calculating ...");
+
+    Stopwatch stopwatch = Stopwatch.createStarted();
+    int total = sites.size() * vs30s.size();
+    int logInterval = total < 100 ? 1 : total < 1000 ? 10 : 100;
+    int count = 0;
+
+    try (DataOutputStream bundleOut = new DataOutputStream(
+        new BufferedOutputStream(Files.newOutputStream(bundle)))) {
+
+      bundleOut.write(MAGIC);
+      long position = MAGIC.length;
+      Map<String, long[]> index = new LinkedHashMap<>();
+
+      for (Entry<String, SiteEntry> entry : sites.entrySet()) {
+        for (int vs30 : vs30s) {
+          Site site = entry.getValue().site(vs30);
+          Hazard hazard = HazardCalcs.hazard(model, config, site, exec);
+          JsonObject result = result(model, entry.getKey(), entry.getValue(), site, hazard, exec);
+
+          byte[] data = compress(GSON.toJson(result));
+          bundleOut.write(data);
+          index.put(key(entry.getKey(), vs30), new long[] { position, data.length });
+          position += data.length;
+
+          if (++count % logInterval == 0) {
+            log.info(String.format(
+                "     %s of %s results completed in %s",
+                count, total, stopwatch));
+          }
+        }
+      }
+
+      /* Index, header, then the position of the index. */
+      bundleOut.writeInt(index.size());
+      for (Entry<String, long[]> entry : index.entrySet()) {
+        bundleOut.writeUTF(entry.getKey());
+        bundleOut.writeLong(entry.getValue()[0]);
+        bundleOut.writeInt((int) entry.getValue()[1]);
+      }
+      byte[] header = GSON.toJson(header(model, sites.keySet(), vs30s)).getBytes(UTF_8);
+      bundleOut.writeInt(header.length);
+      bundleOut.write(header);
+      bundleOut.writeLong(position);
+    } finally {
+      exec.shutdown();
+    }
+
+    log.info(String.format(
+        PROGRAM + ": %s results completed in %s",
+        count, stopwatch));
+  }
+
+  /*
+   * Reference sites within the model bounds keyed by 'group/id'. Cybershake
+   * sites carry their own basin depths; basin depths at other sites come from
+   * the model.
+   */
+  private static Map<String, SiteEntry> referenceSites(HazardModel model) {
+    Map<String, SiteEntry> sites = new LinkedHashMap<>();
+    for (NshmpSite site : NshmpSite.values()) {
+      addSite(sites, model, "nshmp", site);
+    }
+    for (NuregSite site : NuregSite.values()) {
+      addSite(sites, model, "nureg", site);
+    }
+    for (CybershakeSite site : CybershakeSite.values()) {
+      addSite(sites, model, "cybershake", site);
+    }
+    return sites;
+  }
+
+  private static void addSite(
+      Map<String, SiteEntry> sites,
+      HazardModel model,
+      String group,
+      NamedLocation site) {
+
+    Location loc = site.location();
+    Location min = model.bounds().min;
+    Location max = model.bounds().max;
+    if (loc.longitude < min.longitude || loc.longitude > max.longitude ||
+        loc.latitude < min.latitude || loc.latitude > max.latitude) {
+      return;
+    }
+    Optional<Double> z1p0;
+    Optional<Double> z2p5;
+    if (site instanceof CybershakeSite) {
+      CybershakeSite cs = (CybershakeSite) site;
+      z1p0 = Optional.of(cs.z1p0());
+      z2p5 = Optional.of(cs.z2p5());
+    } else {
+      SiteData.Values values = model.siteData().get(loc);
+      z1p0 = values.z1p0;
+      z2p5 = values.z2p5;
+    }
+    String id = group + "/" + ((Enum<?>) site).name();
+    sites.put(id, new SiteEntry(site.toString(), loc, z1p0, z2p5));
+  }
+
+  private static final class SiteEntry {
+    final String name;
+    final Location location;
+    final Optional<Double> z1p0;
+    final Optional<Double> z2p5;
+
+    SiteEntry(String name, Location location, Optional<Double> z1p0, Optional<Double> z2p5) {
+      this.name = name;
+      this.location = location;
+      this.z1p0 = z1p0;
+      this.z2p5 = z2p5;
+    }
+
+    Site site(double vs30) {
+      Site.Builder site = Site.builder().location(location).vs30(vs30);
+      z1p0.ifPresent(site::z1p0);
+      z2p5.ifPresent(site::z2p5);
+      return site.build();
+    }
+  }
+
+  private static JsonObject header(HazardModel model, Iterable<String> sites, List<Integer> vs30s) {
+    JsonObject header = new JsonObject();
+    header.addProperty("model", model.name());
+    header.add("vs30s", GSON.toJsonTree(vs30s));
+    header.add("returnPeriods", GSON.toJsonTree(RETURN_PERIODS));
+    header.add("sites", GSON.toJsonTree(sites));
+    return header;
+  }
+
+  /* Hazard curves in linear ground motion and disaggregations at IMLs. */
+  private static JsonObject result(
+      HazardModel model,
+      String id,
+      SiteEntry entry,
+      Site site,
+      Hazard hazard,
+      ExecutorService exec) {
+
+    JsonObject siteJson = new JsonObject();
+    siteJson.addProperty("id", id);
+    siteJson.addProperty("name", entry.name);
+    siteJson.addProperty("longitude", site.location().longitude);
+    siteJson.addProperty("latitude", site.location().latitude);
+    siteJson.addProperty("vs30", site.vs30());
+    siteJson.addProperty("z1p0", entry.z1p0.orElse(null));
+    siteJson.addProperty("z2p5", entry.z2p5.orElse(null));
+
+    JsonObject curves = new JsonObject();
+    for (Entry<Imt, XySequence> curve : hazard.curves().entrySet()) {
+      JsonObject xy = new JsonObject();
+      xy.add("xs", GSON.toJsonTree(curve.getValue().xValues().map(Math::exp).toArray()));
+      xy.add("ys", GSON.toJsonTree(curve.getValue().yValues().toArray()));
+      curves.add(curve.getKey().name(), xy);
+    }
+
+    JsonObject disaggs = new JsonObject();
+    for (int returnPeriod : RETURN_PERIODS) {
+      Map<Imt, Double> imls = DisaggCalc.imlsForReturnPeriod(hazard, returnPeriod);
+      Disaggregation disagg = Disaggregation.atImls(hazard, imls, exec);
+      JsonObject rpJson = new JsonObject();
+      for (Imt imt : imls.keySet()) {
+        JsonObject imtJson = new JsonObject();
+        imtJson.addProperty("iml", imls.get(imt));
+        imtJson.add("data", GSON.toJsonTree(disagg.toJson(imt, false, false, false)));
+        rpJson.add(imt.name(), imtJson);
+      }
+      disaggs.add(String.valueOf(returnPeriod), rpJson);
+    }
+
+    JsonObject result = new JsonObject();
+    result.addProperty("model", model.name());
+    result.add("site", siteJson);
+    result.add("hazard", curves);
+    result.add("disagg", disaggs);
+    return result;
+  }
+
+  private static byte[] compress(String json) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (OutputStream out = new GZIPOutputStream(bytes)) {
+      out.write(json.getBytes(UTF_8));
+    }
+    return bytes.toByteArray();
+  }
+
+  /**
+   * The bundle key for a site and Vs30.
+   *
+   * @param id the site group and id, e.g. {@code nshmp/LOS_ANGELES_CA}
+   * @param vs30 of interest
+   */
+  public static String key(String id, int vs30) {
+    return id + "/" + vs30;
+  }
+
+  /**
+   * Open a site bundle for reading. The bundle index is read into memory;
+   * results are read on request.
+   *
+   * @param path to a bundle file
+   */
+  public static SiteBundle open(Path path) throws IOException {
+    FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+    try {
+      long size = channel.size();
+      byte[] magic = read(channel, 0, MAGIC.length);
+      checkArgument(Arrays.equals(magic, MAGIC), "Not a site bundle: %s", path);
+      long indexPosition = ByteBuffer.wrap(read(channel, size - Long.BYTES, Long.BYTES)).getLong();
+      byte[] indexBytes = read(channel, indexPosition, (int) (size - Long.BYTES - indexPosition));
+      DataInputStream in = new DataInputStream(new ByteArrayInputStream(indexBytes));
+      int count = in.readInt();
+      Map<String, long[]> index = new LinkedHashMap<>(count * 4 / 3 + 1);
+      for (int i = 0; i < count; i++) {
+        index.put(in.readUTF(), new long[] { in.readLong(), in.readInt() });
+      }
+      byte[] header = new byte[in.readInt()];
+      in.readFully(header);
+      return new SiteBundle(
+          channel,
+          new String(header, UTF_8),
+          Collections.unmodifiableMap(index));
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  /**
+   * The bundle header as JSON. The header lists the model name, Vs30s, return
+   * periods, and site ids in the bundle.
+   */
+  public String header() {
+    return header;
+  }
+
+  /** The keys of all results in this bundle. */
+  public List<String> keys() {
+    return new ArrayList<>(index.keySet());
+  }
+
+  /**
+   * Return the JSON result for a site and Vs30, if present.
+   *
+   * @param id the site group and id, e.g. {@code nshmp/LOS_ANGELES_CA}
+   * @param vs30 of interest
+   */
+  public Optional<String> get(String id, int vs30) throws IOException {
+    long[] entry = index.get(key(id, vs30));
+    if (entry == null) {
+      return Optional.empty();
+    }
+    byte[] data = read(channel, entry[0], (int) entry[1]);
+    try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(data))) {
+      return Optional.of(new String(in.readAllBytes(), UTF_8));
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+
+  /* Positioned reads are safe for concurrent use of a channel. */
+  private static byte[] read(FileChannel channel, long position, int length) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(length);
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, position + buffer.position()) < 0) {
+        throw new IOException("Unexpected end of site bundle");
+      }
+    }
+    return buffer.array();
+  }
+
+  private static final String PROGRAM = SiteBundle.class.getSimpleName();
+  private static final String USAGE_COMMAND =
+      "java -cp nshmp-haz.jar gov.usgs.earthquake.nshmp.SiteBundle model [config]";
+  private static final String USAGE_URL1 =
+      "https://code.usgs.gov/ghsc/nshmp/nshmp-haz/-/tree/main/docs";
+  private static final String USAGE_URL2 =
+      "https://code.usgs.gov/ghsc/nshmp/nshmp-haz/-/tree/main/etc/examples";
+
+  private static final String USAGE = new StringBuilder()
+      .append(NEWLINE)
+      .append(PROGRAM).append(" version:").append(HazardCalc.VERSION)
+      .append(NEWLINE)
+      .append("Usage:").append(NEWLINE)
+      .append("  ").append(USAGE_COMMAND).append(NEWLINE)
+      .append(NEWLINE)
+      .append("Where:").append(NEWLINE)
+      .append("  'model' is a model directory")
+      .append(NEWLINE)
+      .append("  'config' (optional) supplies a calculation configuration")
+      .append(NEWLINE)
+      .append(NEWLINE)
+      .append("Hazard and disaggregations at 475, 975, and 2475 years are computed at all")
+      .append(NEWLINE)
+      .append("NSHMP, NUREG, and Cybershake reference sites within the model bounds for each")
+      .append(NEWLINE)
+      .append("model site class and written to " + FILENAME + " in the output directory.")
+      .append(NEWLINE)
+      .append(NEWLINE)
+      .append("For more information, see:").append(NEWLINE)
+      .append("  ").append(USAGE_URL1).append(NEWLINE)
+      .append("  ").append(USAGE_URL2).append(NEWLINE)
+      .toString();
+
+}
@@ -0,0 +1,183 @@
+package gov.usgs.earthquake.nshmp;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import com.google.common.base.Splitter;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import gov.usgs.earthquake.nshmp.calc.Site;
+import gov.usgs.earthquake.nshmp.geo.Location;
+
+/**
+ * The order in which {@link HazardCalc} processes sites. Calculations at
+ * nearby sites touch many of the same sources, so processing sites along a
+ * space-filling curve, rather than row by row, keeps the data for those
+ * sources in processor caches between sites. Results are written in the order
+ * sites were supplied. Map grids are always processed in grid order.
+ *
+ * <p>Ordering does not reduce the work done per site. Computing a candidate
+ * source set once per tile of sites and reusing it for every site in the tile
+ * is not supported: sources are filtered by distance inside
+ * {@code HazardCalcs.hazard}, which has no way to accept a precomputed source
+ * set.
+ *
+ * <p>The order is set with the {@code performance.siteOrder} field of a
+ * calculation configuration file. This field is read by {@code HazardCalc}
+ * only and is not part of the written {@code calc-config.json}.
+ *
+ * @author U.S. Geological Survey
+ */
+enum SiteOrder {
+
+  /** Process sites in the order supplied. */
+  INPUT,
+
+  /** Process sites in order along a Hilbert curve spanning the sites. */
+  HILBERT;
+
+  /* Bits of resolution per axis of the Hilbert curve. */
+  private static final int BITS = 16;
+
+  /* Allowed difference between site and written coordinates. */
+  private static final double LOCATION_TOLERANCE = 1e-4;
+
+  /**
+   * Return the processing order of the supplied sites as an array of indices
+   * into {@code sites}.
+   *
+   * @param sites to order
+   */
+  int[] order(List<Site> sites) {
+    int[] indices = IntStream.range(0, sites.size()).toArray();
+    if (this == INPUT || sites.size() < 3) {
+      return indices;
+    }
+    double minLon = Double.POSITIVE_INFINITY;
+    double maxLon = Double.NEGATIVE_INFINITY;
+    double minLat = Double.POSITIVE_INFINITY;
+    double maxLat = Double.NEGATIVE_INFINITY;
+    for (Site site : sites) {
+      Location loc = site.location();
+      minLon = Math.min(minLon, loc.longitude);
+      maxLon = Math.max(maxLon, loc.longitude);
+      minLat = Math.min(minLat, loc.latitude);
+      maxLat = Math.max(maxLat, loc.latitude);
+    }
+    int cells = 1 << BITS;
+    double lonScale = (cells - 1) / Math.max(maxLon - minLon, 1e-9);
+    double latScale = (cells - 1) / Math.max(maxLat - minLat, 1e-9);
+    long[] keys = new long[sites.size()];
+    for (int i = 0; i < keys.length; i++) {
+      Location loc = sites.get(i).location();
+      int x = (int) ((loc.longitude - minLon) * lonScale);
+      int y = (int) ((loc.latitude - minLat) * latScale);
+      keys[i] = hilbertIndex(x, y, cells);
+    }
+    return Arrays.stream(indices)
+        .boxed()
+        .sorted(Comparator.comparingLong(i -> keys[i]))
+        .mapToInt(Integer::intValue)
+        .toArray();
+  }
+
+  /* Distance along a Hilbert curve filling an n x n grid to cell (x, y). */
+  static long hilbertIndex(int x, int y, int n) {
+    long d = 0;
+    for (int s = n / 2; s > 0; s /= 2) {
+      int rx = (x & s) > 0 ? 1 : 0;
+      int ry = (y & s) > 0 ? 1 : 0;
+      d += (long) s * s * ((3 * rx) ^ ry);
+      if (ry == 0) {
+        if (rx == 1) {
+          x = n - 1 - x;
+          y = n - 1 - y;
+        }
+        int t = x;
+        x = y;
+        y = t;
+      }
+    }
+    return d;
+  }
+
+  /**
+   * Rewrite a CSV result file in the order sites were supplied. The file must
+   * have a single header row followed by one row per site, in processing order,
+   * whose location columns match the site; the location columns follow a
+   * {@code name} column if the header starts with {@code name}. A file of any
+   * other shape is left unchanged.
+   *
+   * @param file to rewrite
+   * @param sites in the order supplied
+   * @param order the processing order returned by {@link #order(List)}
+   * @return {@code true} if the file was rewritten
+   */
+  static boolean restore(Path file, List<Site> sites, int[] order) throws IOException {
+    List<String> lines = Files.readAllLines(file);
+    if (lines.size() != order.length + 1) {
+      return false;
+    }
+    String header = lines.get(0);
+    int lonColumn = header.startsWith("name") ? 1 : 0;
+    String[] rows = new String[order.length];
+    for (int i = 0; i < order.length; i++) {
+      String row = lines.get(i + 1);
+      if (!matches(row, lonColumn, sites.get(order[i]).location())) {
+        return false;
+      }
+      rows[order[i]] = row;
+    }
+    List<String> restored = new ArrayList<>(order.length + 1);
+    restored.add(header);
+    restored.addAll(Arrays.asList(rows));
+    Files.write(file, restored);
+    return true;
+  }
+
+  /* Whether the location columns of a row are those of a location. */
+  private static boolean matches(String row, int lonColumn, Location location) {
+    List<String> values = Splitter.on(',').trimResults().limit(lonColumn + 3).splitToList(row);
+    if (values.size() < lonColumn + 2) {
+      return false;
+    }
+    try {
+      double lon = Double.parseDouble(values.get(lonColumn));
+      double lat = Double.parseDouble(values.get(lonColumn + 1));
+      return Math.abs(lon - location.longitude) < LOCATION_TOLERANCE &&
+          Math.abs(lat - location.latitude) < LOCATION_TOLERANCE;
+    } catch (NumberFormatException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Read the site order from the {@code performance.siteOrder} field of a
+   * calculation configuration file, if present.
+   *
+   * @param config the configuration file, which need not exist
+   * @param defaultOrder the order to use if the field is absent
+   */
+  static SiteOrder fromConfig(Path config, SiteOrder defaultOrder) throws IOException {
+    if (!Files.exists(config)) {
+      return defaultOrder;
+    }
+    try (Reader reader = Files.newBufferedReader(config)) {
+      JsonObject json = JsonParser.parseReader(reader).getAsJsonObject();
+      JsonElement performance = json.get("performance");
+      if (performance == null || !performance.getAsJsonObject().has("siteOrder")) {
+        return defaultOrder;
+      }
+      return valueOf(performance.getAsJsonObject().get("siteOrder").getAsString());
+    }
+  }
+}
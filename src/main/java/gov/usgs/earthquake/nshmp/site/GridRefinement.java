@@ -0,0 +1,280 @@
+package gov.usgs.earthquake.nshmp.site;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import gov.usgs.earthquake.nshmp.Maths;
+import gov.usgs.earthquake.nshmp.calc.Site;
+import gov.usgs.earthquake.nshmp.geo.Location;
+
+/**
+ * Adaptive refinement of a map grid. Rather than computing values at every
+ * node of a {@link GridSites} grid, values are first computed at the corners of
+ * coarse cells that are {@code 2^levels} grid spacings on a side. Cells where
+ * values at the corners vary by more than a relative tolerance are split into
+ * four, recursively, down to the spacing of the grid. Cells that cross the
+ * boundary of the grid region are always split so that results near the
+ * boundary match those of the full grid.
+ *
+ * <p>Values within each final cell may be bilinearly interpolated from its
+ * corners. Where hazard varies smoothly, most cells are never refined and only
+ * a small fraction of the grid nodes are computed.
+ *
+ * <p>Refinement is set with the {@code performance.gridRefinement} (levels)
+ * and {@code performance.gridTolerance} fields of a calculation configuration
+ * file. These fields are read by {@code HazardCalc} only and are not part of
+ * the written {@code calc-config.json}.
+ *
+ * @author U.S. Geological Survey
+ */
+public final class GridRefinement {
+
+  /** The default relative tolerance. */
+  public static final double DEFAULT_TOLERANCE = 0.1;
+
+  /** No refinement; all grid nodes are computed. */
+  public static final GridRefinement NONE = new GridRefinement(0, DEFAULT_TOLERANCE);
+
+  /* Refinement beyond this many levels is of little benefit. */
+  private static final int MAX_LEVELS = 8;
+
+  private static final int SCALE = 6;
+
+  private final int levels;
+  private final double tolerance;
+
+  private GridRefinement(int levels, double tolerance) {
+    checkArgument(
+        levels >= 0 && levels <= MAX_LEVELS,
+        "Refinement levels [%s] not in [0..%s]", levels, MAX_LEVELS);
+    checkArgument(tolerance > 0.0, "Tolerance [%s] must be positive", tolerance);
+    this.levels = levels;
+    this.tolerance = tolerance;
+  }
+
+  /**
+   * Create a grid refinement.
+   *
+   * @param levels the number of times the coarsest cells may be split; coarse
+   *        cells are {@code 2^levels} grid spacings on a side
+   * @param tolerance the maximum relative difference, {@code (max - min) / max},
+   *        of values at the corners of a cell that is not split
+   */
+  public static GridRefinement create(int levels, double tolerance) {
+    return new GridRefinement(levels, tolerance);
+  }
+
+  /**
+   * Read the grid refinement from the {@code performance.gridRefinement} and
+   * {@code performance.gridTolerance} fields of a calculation configuration
+   * file, if present.
+   *
+   * @param config the configuration file, which need not exist
+   * @param defaults the refinement to use if the fields are absent
+   */
+  public static GridRefinement fromConfig(
+      Path config,
+      GridRefinement defaults) throws IOException {
+
+    if (!Files.exists(config)) {
+      return defaults;
+    }
+    try (Reader reader = Files.newBufferedReader(config)) {
+      JsonObject json = JsonParser.parseReader(reader).getAsJsonObject();
+      JsonElement performance = json.get("performance");
+      if (performance == null) {
+        return defaults;
+      }
+      JsonObject perf = performance.getAsJsonObject();
+      if (!perf.has("gridRefinement") && !perf.has("gridTolerance")) {
+        return defaults;
+      }
+      return new GridRefinement(
+          perf.has("gridRefinement")
+              ? perf.get("gridRefinement").getAsInt()
+              : defaults.levels,
+          perf.has("gridTolerance")
+              ? perf.get("gridTolerance").getAsDouble()
+              : defaults.tolerance);
+    }
+  }
+
+  /** Whether grid nodes may be skipped. */
+  public boolean enabled() {
+    return levels > 0;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("levels: %s, tolerance: %s", levels, tolerance);
+  }
+
+  /**
+   * A final, unrefined cell. Values at its four corners were computed and
+   * values inside it may be interpolated.
+   */
+  public static final class Cell {
+
+    /** The southwest corner of the cell. */
+    public final Location min;
+
+    /** The width and height of the cell in decimal degrees. */
+    public final double size;
+
+    private Cell(Location min, double size) {
+      this.min = min;
+      this.size = size;
+    }
+  }
+
+  /**
+   * Refine a grid, computing values at the grid sites required. Sites are
+   * computed at most once, in order of increasing coarse cell latitude then
+   * longitude, and depth first within each coarse cell.
+   *
+   * @param grid to refine
+   * @param values the function computing values at a site, e.g. ground motions
+   *        at one or more return periods; all arrays must be the same length
+   * @return the final cells whose four corners are all within the grid region
+   */
+  public List<Cell> refine(GridSites grid, Function<Site, double[]> values) {
+    Refiner refiner = new Refiner(grid, values);
+    int k = 1 << levels;
+    int rowStart = Math.floorDiv(grid.rowStart, k) * k;
+    int colStart = Math.floorDiv(grid.colStart, k) * k;
+    for (int row = rowStart; row <= grid.rowEnd; row += k) {
+      for (int col = colStart; col <= grid.colEnd; col += k) {
+        refiner.refine(row, col, k);
+      }
+    }
+    return refiner.cells;
+  }
+
+  /**
+   * Write final cells to a CSV file with a {@code lon,lat,size} header. Each
+   * row holds the southwest corner and size of a cell.
+   *
+   * @param cells to write
+   * @param path of the file
+   */
+  public static void writeCells(List<Cell> cells, Path path) throws IOException {
+    List<String> lines = new ArrayList<>(cells.size() + 1);
+    lines.add("lon,lat,size");
+    for (Cell cell : cells) {
+      lines.add(String.join(",",
+          Double.toString(cell.min.longitude),
+          Double.toString(cell.min.latitude),
+          Double.toString(cell.size)));
+    }
+    Files.write(path, lines);
+  }
+
+  private final class Refiner {
+
+    final GridSites grid;
+    final Function<Site, double[]> function;
+    final Map<Long, double[]> values = new HashMap<>();
+    final List<Cell> cells = new ArrayList<>();
+
+    Refiner(GridSites grid, Function<Site, double[]> function) {
+      this.grid = grid;
+      this.function = function;
+    }
+
+    void refine(int row, int col, int k) {
+      int inside = 0;
+      for (int r = row; r <= row + k; r++) {
+        for (int c = col; c <= col + k; c++) {
+          if (grid.node(r, c) != null) {
+            inside++;
+          }
+        }
+      }
+      if (inside == 0) {
+        return;
+      }
+
+      /* Split cells crossing the region boundary or that vary too much. */
+      boolean full = inside == (k + 1) * (k + 1);
+      if (k > 1 && (!full || varies(row, col, k))) {
+        int half = k / 2;
+        refine(row, col, half);
+        refine(row, col + half, half);
+        refine(row + half, col, half);
+        refine(row + half, col + half, half);
+        return;
+      }
+
+      /* Cells of one grid spacing compute only the corners in the region. */
+      boolean complete = true;
+      for (int[] corner : corners(row, col, k)) {
+        complete &= value(corner[0], corner[1]) != null;
+      }
+      if (complete) {
+        cells.add(new Cell(
+            grid.node(row, col),
+            Maths.round(k * grid.spacing(), SCALE)));
+      }
+    }
+
+    boolean varies(int row, int col, int k) {
+      double[][] corners = new double[4][];
+      int i = 0;
+      for (int[] corner : corners(row, col, k)) {
+        corners[i++] = value(corner[0], corner[1]);
+      }
+      for (int j = 0; j < corners[0].length; j++) {
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        for (double[] corner : corners) {
+          double v = corner[j];
+          if (Double.isNaN(v)) {
+            continue;
+          }
+          min = Math.min(min, v);
+          max = Math.max(max, v);
+        }
+        if (max > 0.0 && (max - min) / max > tolerance) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    /* Value at a node, computing it if necessary; null if not in region. */
+    double[] value(int row, int col) {
+      long key = ((long) row << 32) ^ (col & 0xffffffffL);
+      double[] value = values.get(key);
+      if (value == null) {
+        Location loc = grid.node(row, col);
+        if (loc == null) {
+          return null;
+        }
+        value = function.apply(grid.site(loc));
+        values.put(key, value);
+      }
+      return value;
+    }
+  }
+
+  private static int[][] corners(int row, int col, int k) {
+    return new int[][] {
+        { row, col },
+        { row, col + k },
+        { row + k, col },
+        { row + k, col + k } };
+  }
+}
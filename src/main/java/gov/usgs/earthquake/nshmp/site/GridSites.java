@@ -0,0 +1,321 @@
+package gov.usgs.earthquake.nshmp.site;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkElementIndex;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.AbstractCollection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.OptionalDouble;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import gov.usgs.earthquake.nshmp.Maths;
+import gov.usgs.earthquake.nshmp.calc.Site;
+import gov.usgs.earthquake.nshmp.geo.Location;
+import gov.usgs.earthquake.nshmp.geo.LocationList;
+import gov.usgs.earthquake.nshmp.model.SiteData;
+
+/**
+ * A lazily generated grid of sites covering a polygon. Grid nodes are aligned
+ * to integer multiples of the grid spacing and are generated in order of
+ * increasing latitude, then longitude, as they are iterated, the same order as
+ * {@code Sites.fromGeoJson}. No site list is ever held in memory, so very dense
+ * grids over large regions are feasible.
+ *
+ * <p>The {@link #size()} of a grid is computed on first request by a pass
+ * over the grid nodes that does not create any sites. Use
+ * {@link #shard(int, int)} to split a grid into contiguous bands of rows for
+ * separate processing.
+ *
+ * @author U.S. Geological Survey
+ */
+public final class GridSites extends AbstractCollection<Site> {
+
+  private static final String EXTENTS_ID = "Extents";
+  private static final int SCALE = 6;
+
+  private final PolygonIndex region;
+  private final String name;
+  private final double spacing;
+  private final SiteData siteData;
+  private final OptionalDouble vs30;
+  private final OptionalDouble z1p0;
+  private final OptionalDouble z2p5;
+
+  /* Inclusive bounds of grid node indices; see GridRefinement. */
+  final int rowStart;
+  final int rowEnd;
+  final int colStart;
+  final int colEnd;
+
+  private volatile int size = -1;
+
+  private GridSites(
+      PolygonIndex region,
+      String name,
+      double spacing,
+      SiteData siteData,
+      OptionalDouble vs30,
+      OptionalDouble z1p0,
+      OptionalDouble z2p5,
+      int rowStart,
+      int rowEnd) {
+
+    this.region = region;
+    this.name = name;
+    this.spacing = spacing;
+    this.siteData = siteData;
+    this.vs30 = vs30;
+    this.z1p0 = z1p0;
+    this.z2p5 = z2p5;
+    this.rowStart = rowStart;
+    this.rowEnd = rowEnd;
+    this.colStart = index(region.minLongitude(), spacing, true);
+    this.colEnd = index(region.maxLongitude(), spacing, false);
+  }
+
+  private static GridSites create(
+      LocationList coordinates,
+      String name,
+      double spacing,
+      SiteData siteData,
+      OptionalDouble vs30,
+      OptionalDouble z1p0,
+      OptionalDouble z2p5) {
+
+    checkArgument(spacing > 0.0, "Grid spacing [%s] must be positive", spacing);
+    PolygonIndex region = PolygonIndex.create(coordinates);
+    return new GridSites(
+        region,
+        name,
+        spacing,
+        checkNotNull(siteData),
+        checkNotNull(vs30),
+        z1p0,
+        z2p5,
+        index(region.minLatitude(), spacing, true),
+        index(region.maxLatitude(), spacing, false));
+  }
+
+  /**
+   * Create a grid of sites covering an NSHMP polygon.
+   *
+   * @param polygon the region to cover
+   * @param spacing the grid spacing in decimal degrees
+   * @param siteData source of basin terms for each site
+   * @param vs30 optional Vs30 to apply to all sites
+   */
+  public static GridSites create(
+      NshmpPolygon polygon,
+      double spacing,
+      SiteData siteData,
+      OptionalDouble vs30) {
+
+    return create(
+        polygon.coordinates(),
+        polygon.name(),
+        spacing,
+        siteData,
+        vs30,
+        OptionalDouble.empty(),
+        OptionalDouble.empty());
+  }
+
+  /**
+   * Create a grid of sites from a GeoJSON map region file. The file must hold a
+   * single polygon feature with a {@code spacing} property; optional
+   * {@code vs30}, {@code z1p0}, and {@code z2p5} properties are applied to all
+   * sites. Returns an empty optional if the file defines point sites, has an
+   * {@code Extents} feature, or the polygon has holes; extents require points
+   * outside the region to be included in results and holes are not supported
+   * by the grid, so such files must be expanded in full (see
+   * {@code Sites.fromGeoJson}).
+   *
+   * @param path to the GeoJSON file
+   * @param siteData source of basin terms for each site
+   * @param vs30 optional Vs30 to apply to all sites; overrides any
+   *        {@code vs30} property
+   */
+  public static Optional<GridSites> fromGeoJson(
+      Path path,
+      SiteData siteData,
+      OptionalDouble vs30) throws IOException {
+
+    JsonObject json;
+    try (Reader reader = Files.newBufferedReader(path)) {
+      json = JsonParser.parseReader(reader).getAsJsonObject();
+    }
+    JsonArray features = json.getAsJsonArray("features");
+    if (features == null || features.size() != 1) {
+      return Optional.empty();
+    }
+    JsonObject feature = features.get(0).getAsJsonObject();
+    JsonObject geometry = feature.getAsJsonObject("geometry");
+    boolean extents = feature.has("id") &&
+        EXTENTS_ID.equals(feature.get("id").getAsString());
+    if (extents || !"Polygon".equals(geometry.get("type").getAsString())) {
+      return Optional.empty();
+    }
+    JsonArray rings = geometry.getAsJsonArray("coordinates");
+    if (rings.size() != 1) {
+      return Optional.empty();
+    }
+
+    LocationList.Builder coords = LocationList.builder();
+    JsonArray ring = rings.get(0).getAsJsonArray();
+    for (JsonElement coord : ring) {
+      JsonArray lonLat = coord.getAsJsonArray();
+      coords.add(lonLat.get(0).getAsDouble(), lonLat.get(1).getAsDouble());
+    }
+
+    JsonObject properties = feature.has("properties")
+        ? feature.getAsJsonObject("properties")
+        : new JsonObject();
+    checkArgument(properties.has("spacing"),
+        "Map region [%s] must define a 'spacing' property", path);
+    String title = properties.has("title")
+        ? properties.get("title").getAsString()
+        : path.getFileName().toString();
+
+    return Optional.of(create(
+        coords.build(),
+        title,
+        properties.get("spacing").getAsDouble(),
+        siteData,
+        vs30.isPresent() ? vs30 : property(properties, "vs30"),
+        property(properties, "z1p0"),
+        property(properties, "z2p5")));
+  }
+
+  private static OptionalDouble property(JsonObject properties, String key) {
+    return properties.has(key)
+        ? OptionalDouble.of(properties.get(key).getAsDouble())
+        : OptionalDouble.empty();
+  }
+
+  /**
+   * Return one of {@code count} contiguous bands of rows of this grid. The
+   * union of all shards is this grid.
+   *
+   * @param index of the shard, in the range {@code [0..count)}
+   * @param count the number of shards
+   */
+  public GridSites shard(int index, int count) {
+    checkArgument(count > 0, "Shard count [%s] must be positive", count);
+    checkElementIndex(index, count, "Shard index");
+    int rows = rowEnd - rowStart + 1;
+    int start = rowStart + (int) ((long) rows * index / count);
+    int end = rowStart + (int) ((long) rows * (index + 1) / count) - 1;
+    return new GridSites(region, name, spacing, siteData, vs30, z1p0, z2p5, start, end);
+  }
+
+  /** The grid spacing in decimal degrees. */
+  public double spacing() {
+    return spacing;
+  }
+
+  @Override
+  public int size() {
+    int count = size;
+    if (count < 0) {
+      count = 0;
+      for (int row = rowStart; row <= rowEnd; row++) {
+        for (int col = colStart; col <= colEnd; col++) {
+          if (node(row, col) != null) {
+            count++;
+          }
+        }
+      }
+      size = count;
+    }
+    return count;
+  }
+
+  @Override
+  public Iterator<Site> iterator() {
+    return new Iterator<Site>() {
+
+      int row = rowStart;
+      int col = colStart - 1;
+      Location next = advance();
+
+      @Override
+      public boolean hasNext() {
+        return next != null;
+      }
+
+      @Override
+      public Site next() {
+        if (next == null) {
+          throw new NoSuchElementException();
+        }
+        Site site = site(next);
+        next = advance();
+        return site;
+      }
+
+      private Location advance() {
+        while (row <= rowEnd) {
+          if (++col > colEnd) {
+            col = colStart - 1;
+            row++;
+            continue;
+          }
+          Location loc = node(row, col);
+          if (loc != null) {
+            return loc;
+          }
+        }
+        return null;
+      }
+    };
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+        "%s grid [spacing: %s, rows: %s, columns: %s]",
+        name, spacing, rowEnd - rowStart + 1, colEnd - colStart + 1);
+  }
+
+  /* Return the grid node at row and column, or null if not in the region. */
+  Location node(int row, int col) {
+    double lat = Maths.round(row * spacing, SCALE);
+    double lon = Maths.round(col * spacing, SCALE);
+    Location loc = Location.create(lon, lat);
+    return region.contains(loc) ? loc : null;
+  }
+
+  Site site(Location location) {
+    Site.Builder site = Site.builder().location(location);
+    vs30.ifPresent(site::vs30);
+    SiteData.Values values = siteData.get(location);
+    if (z1p0.isPresent()) {
+      site.z1p0(z1p0.getAsDouble());
+    } else {
+      values.z1p0.ifPresent(site::z1p0);
+    }
+    if (z2p5.isPresent()) {
+      site.z2p5(z2p5.getAsDouble());
+    } else {
+      values.z2p5.ifPresent(site::z2p5);
+    }
+    return site.build();
+  }
+
+  /* Index of the first (or last) multiple of spacing within a limit. */
+  private static int index(double value, double spacing, boolean first) {
+    double scaled = Maths.round(value / spacing, SCALE);
+    return (int) (first ? Math.ceil(scaled) : Math.floor(scaled));
+  }
+}
@@ -1,5 +1,12 @@
 package gov.usgs.earthquake.nshmp.site;
 
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
+import gov.usgs.earthquake.nshmp.geo.Bounds;
+import gov.usgs.earthquake.nshmp.geo.Location;
 import gov.usgs.earthquake.nshmp.geo.LocationList;
 
 /**
@@ -32,12 +39,54 @@ public enum NshmpPolygon {
 
   CYBERSHAKE(Data.CYBERSHAKE, "Cybershake – Los Angeles Basin");
 
+  private static final NshmpPolygon[] VALUES = values();
+
   private final LocationList coordinates;
   private final String label;
+  private final PolygonIndex index;
+  private final Bounds bounds;
+  private final Map<Resolution, LocationList> simplified;
 
   private NshmpPolygon(double[][] coords, String label) {
     this.coordinates = createPolygon(coords);
     this.label = label;
+    this.index = PolygonIndex.create(coordinates);
+    this.bounds = coordinates.bounds();
+    this.simplified = new EnumMap<>(Resolution.class);
+    for (Resolution resolution : Resolution.values()) {
+      simplified.put(resolution, PolygonSimplifier.simplify(coordinates, resolution.tolerance));
+    }
+  }
+
+  /**
+   * The resolutions at which simplified polygon outlines are available. Each
+   * defines the maximum distance, in decimal degrees, of any omitted vertex
+   * from the simplified outline.
+   */
+  public enum Resolution {
+
+    /** All vertices. */
+    FULL(0.0),
+
+    /** Vertices within ~1 km of the outline are omitted. */
+    HIGH(0.01),
+
+    /** Vertices within ~5 km of the outline are omitted. */
+    MEDIUM(0.05),
+
+    /** Vertices within ~20 km of the outline are omitted. */
+    LOW(0.2);
+
+    private final double tolerance;
+
+    private Resolution(double tolerance) {
+      this.tolerance = tolerance;
+    }
+
+    /** The simplification tolerance in decimal degrees. */
+    public double tolerance() {
+      return tolerance;
+    }
   }
 
   /**
@@ -47,6 +96,56 @@ public enum NshmpPolygon {
     return coordinates;
   }
 
+  /**
+   * Return a simplified outline of this polygon. Simplified outlines are
+   * precomputed and are intended for display and lightweight exports; use
+   * {@link #contains(Location)} for containment tests, which always uses the
+   * full polygon.
+   *
+   * @param resolution of the outline
+   */
+  public LocationList coordinates(Resolution resolution) {
+    return simplified.get(resolution);
+  }
+
+  /**
+   * Return the bounding box of this polygon.
+   */
+  public Bounds bounds() {
+    return bounds;
+  }
+
+  /**
+   * Return whether this polygon contains the supplied location. Polygons
+   * defined by only two coordinates (e.g. {@code CONUS_CLIP}) are treated as
+   * the rectangle they span. Locations outside the bounding box of this
+   * polygon are rejected before any edges are examined.
+   *
+   * @param location to test
+   */
+  public boolean contains(Location location) {
+    return index.contains(location);
+  }
+
+  /**
+   * Return the polygons that contain the supplied location. Each polygon is
+   * precomputed for fast point-in-polygon tests, so this method is suitable for
+   * routing and validating large numbers of points.
+   *
+   * @param location to test
+   * @return a new set of the polygons containing {@code location}, which may be
+   *         empty
+   */
+  public static Set<NshmpPolygon> regionsContaining(Location location) {
+    Set<NshmpPolygon> regions = EnumSet.noneOf(NshmpPolygon.class);
+    for (NshmpPolygon polygon : VALUES) {
+      if (polygon.index.contains(location)) {
+        regions.add(polygon);
+      }
+    }
+    return regions;
+  }
+
   @Override
   public String toString() {
     return label;
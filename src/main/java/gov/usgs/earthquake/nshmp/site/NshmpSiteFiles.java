@@ -21,21 +21,30 @@ import static gov.usgs.earthquake.nshmp.site.NshmpPolygon.WASATCH;
 import static gov.usgs.earthquake.nshmp.site.NshmpPolygon.WUS_CLIP;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import com.google.common.base.Functions;
+import com.google.common.base.Stopwatch;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
@@ -67,17 +76,87 @@ final class NshmpSiteFiles {
   private static final Path EXPORT_DIR = Paths.get("etc", "nshm");
   private static final String EXTENTS_COLOR = "#AA0078";
 
+  /*
+   * Files are generated concurrently, and every file is regenerated on each
+   * run. Each is written to a temporary file that replaces the existing file
+   * only if their contents differ, so unchanged files, and their modification
+   * times, are left alone.
+   */
+  private static final ExecutorService EXEC = Executors.newFixedThreadPool(
+      Runtime.getRuntime().availableProcessors());
+  private static final List<Future<Boolean>> WRITES = new ArrayList<>();
+
   /**
-   * Updates all site list and map files in etc/nshm.
+   * Regenerates all site list and map files in etc/nshm, replacing only those
+   * whose content changed.
    */
   public static void main(String[] args) throws IOException {
-    writeNshmpSites();
-    writeSites("nureg", EnumSet.allOf(NuregSite.class), DEC3_FMT);
-    writeCybershakeSites("cybershake", EnumSet.allOf(CybershakeSite.class));
+    Stopwatch stopwatch = Stopwatch.createStarted();
+    try {
+      writeNshmpSites();
+      writeSites("nureg", EnumSet.allOf(NuregSite.class), DEC3_FMT);
+      writeCybershakeSites("cybershake", EnumSet.allOf(CybershakeSite.class));
+
+      writeNshmpPolys();
+      writeNshmpSummaryPoly();
+      writeNshmpSimplifiedPolys();
+      // writeNshmpSites_0p1();
+
+      int updated = 0;
+      for (Future<Boolean> write : WRITES) {
+        updated += write.get() ? 1 : 0;
+      }
+      System.out.println(String.format(
+          "Updated %s of %s files in %s [%s]",
+          updated, WRITES.size(), EXPORT_DIR, stopwatch));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException(e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof UncheckedIOException) {
+        throw ((UncheckedIOException) cause).getCause();
+      }
+      throw new IOException(cause);
+    } finally {
+      EXEC.shutdown();
+    }
+  }
+
+  /* Writes the content of a file to the supplied path. */
+  @FunctionalInterface
+  private interface ContentWriter {
+    void write(Path path) throws IOException;
+  }
+
+  /*
+   * Submit a file write. The returned future is true if 'out' was created or
+   * changed.
+   */
+  private static void write(Path out, ContentWriter writer) {
+    WRITES.add(EXEC.submit(() -> {
+      try {
+        return writeIfChanged(out, writer);
+      } catch (IOException ioe) {
+        throw new UncheckedIOException(ioe);
+      }
+    }));
+  }
 
-    writeNshmpPolys();
-    writeNshmpSummaryPoly();
-    // writeNshmpSites_0p1();
+  private static boolean writeIfChanged(Path out, ContentWriter writer) throws IOException {
+    Path tmp = Files.createTempFile(out.getParent(), "." + out.getFileName(), ".tmp");
+    try {
+      writer.write(tmp);
+      if (Files.exists(out) &&
+          Files.size(out) == Files.size(tmp) &&
+          Arrays.equals(Files.readAllBytes(out), Files.readAllBytes(tmp))) {
+        return false;
+      }
+      Files.move(tmp, out, StandardCopyOption.REPLACE_EXISTING);
+      return true;
+    } finally {
+      Files.deleteIfExists(tmp);
+    }
   }
 
   /*
@@ -205,24 +284,47 @@ final class NshmpSiteFiles {
         coordList);
   }
 
+  /*
+   * Lightweight outlines of all map regions for web clients; vertices within
+   * ~5 km of each outline are omitted.
+   */
+  static void writeNshmpSimplifiedPolys() throws IOException {
+    Set<NshmpPolygon> polys = EnumSet.range(ALASKA, CYBERSHAKE);
+
+    List<String> nameList = polys.stream()
+        .map(Functions.toStringFunction())
+        .collect(Collectors.toList());
+
+    List<LocationList> coordList = polys.stream()
+        .map(poly -> poly.coordinates(NshmpPolygon.Resolution.MEDIUM))
+        .collect(Collectors.toList());
+
+    writePolysJson(
+        EXPORT_DIR.resolve("map-nshmp-all-simplified.geojson"),
+        nameList,
+        coordList);
+  }
+
   static void writePolysJson(
       Path out,
       List<String> nameList,
       List<LocationList> coordList) throws IOException {
 
-    GeoJson.Builder b = GeoJson.builder();
-    Properties.Builder props = Properties.builder()
-        .put("spacing", 0.1);
-
-    int i = 0;
-    // can't name and coords come as a map?
-    for (LocationList border : coordList) {
-      props.put(Style.TITLE, nameList.get(i++));
-      b.add(Feature.polygon(border)
-          .properties(props.build())
-          .build());
-    }
-    b.build().write(out);
+    write(out, path -> {
+      GeoJson.Builder b = GeoJson.builder();
+      Properties.Builder props = Properties.builder()
+          .put("spacing", 0.1);
+
+      int i = 0;
+      // can't name and coords come as a map?
+      for (LocationList border : coordList) {
+        props.put(Style.TITLE, nameList.get(i++));
+        b.add(Feature.polygon(border)
+            .properties(props.build())
+            .build());
+      }
+      b.build().write(path);
+    });
   }
 
   static void writePolyJson(
@@ -232,29 +334,31 @@ final class NshmpSiteFiles {
       Double spacing,
       LocationList bounds) throws IOException {
 
-    GeoJson.Builder b = GeoJson.builder();
+    write(out, path -> {
+      GeoJson.Builder b = GeoJson.builder();
+
+      if (bounds != null) {
+        Map<String, Object> boundsProps = Properties.builder()
+            .put(Style.FILL, EXTENTS_COLOR)
+            .put(Style.STROKE, EXTENTS_COLOR)
+            .put(Style.TITLE, name + " Map Extents")
+            .build();
+        b.add(Feature.polygon(bounds)
+            .properties(boundsProps)
+            .id("Extents")
+            .build());
+      }
 
-    if (bounds != null) {
-      Map<String, Object> boundsProps = Properties.builder()
-          .put(Style.FILL, EXTENTS_COLOR)
-          .put(Style.STROKE, EXTENTS_COLOR)
-          .put(Style.TITLE, name + " Map Extents")
+      Map<String, Object> polyProps = Properties.builder()
+          .put("spacing", spacing)
+          .put(Style.TITLE, name)
           .build();
-      b.add(Feature.polygon(bounds)
-          .properties(boundsProps)
-          .id("Extents")
-          .build());
-    }
-
-    Map<String, Object> polyProps = Properties.builder()
-        .put("spacing", spacing)
-        .put(Style.TITLE, name)
-        .build();
-    b.add(Feature.polygon(coords)
-        .properties(polyProps)
-        .build())
-        .build()
-        .write(out);
+      b.add(Feature.polygon(coords)
+          .properties(polyProps)
+          .build())
+          .build()
+          .write(path);
+    });
   }
 
   static void writeNshmpSites_0p1() throws IOException {
@@ -312,6 +416,7 @@ final class NshmpSiteFiles {
     writeCsvSites(csvOut, sites, latLonFormat);
   }
 
+  /* Formats are not thread safe; writers use a clone. */
   private static final DecimalFormat DEC2_FMT = new DecimalFormat("0.00");
   private static final DecimalFormat DEC3_FMT = new DecimalFormat("0.000");
   private static final DecimalFormat DEC5_FMT = new DecimalFormat("0.00000");
@@ -330,8 +435,9 @@ final class NshmpSiteFiles {
   private static void writeCsvSites(
       Path out,
       Collection<? extends NamedLocation> locs,
-      final DecimalFormat latLonFormat) throws IOException {
+      DecimalFormat format) throws IOException {
 
+    DecimalFormat latLonFormat = (DecimalFormat) format.clone();
     Iterable<String> lines = Iterables.transform(locs, new Function<NamedLocation, String>() {
       @Override
       public String apply(NamedLocation loc) {
@@ -348,10 +454,10 @@ final class NshmpSiteFiles {
         .append(',')
         .append(padStart("lat", LAT_BUFF, ' '))
         .toString();
-    Files.write(
-        out,
+    write(out, path -> Files.write(
+        path,
         Iterables.concat(ImmutableList.of(header), lines),
-        StandardCharsets.UTF_8);
+        StandardCharsets.UTF_8));
   }
 
   private static void writeCybershakeCsvSites(
@@ -359,19 +465,21 @@ final class NshmpSiteFiles {
       Collection<CybershakeSite> locs,
       final CybershakeVs30 vs30) throws IOException {
 
+    DecimalFormat dec2Format = (DecimalFormat) DEC2_FMT.clone();
+    DecimalFormat dec5Format = (DecimalFormat) DEC5_FMT.clone();
     Iterable<String> lines = Iterables.transform(locs, new Function<CybershakeSite, String>() {
       @Override
       public String apply(CybershakeSite loc) {
         StringBuilder sb = new StringBuilder();
         sb.append(padEnd(loc.toString() + ",", NAME_BUFF, ' '));
-        sb.append(padStart(DEC5_FMT.format(loc.location().longitude), LON_BUFF_CYBER, ' '));
+        sb.append(padStart(dec5Format.format(loc.location().longitude), LON_BUFF_CYBER, ' '));
         sb.append(',');
-        sb.append(padStart(DEC5_FMT.format(loc.location().latitude), LAT_BUFF_CYBER, ' '));
+        sb.append(padStart(dec5Format.format(loc.location().latitude), LAT_BUFF_CYBER, ' '));
         if (vs30 != CybershakeVs30.NONE) {
           double vs30value = (vs30 == CybershakeVs30.WILLS) ? loc.willsVs30() : loc.cvmVs30();
           sb.append(", ").append(padStart(Double.toString(vs30value), 7, ' '));
-          sb.append(", ").append(DEC2_FMT.format(loc.z1p0()));
-          sb.append(", ").append(DEC2_FMT.format(loc.z2p5()));
+          sb.append(", ").append(dec2Format.format(loc.z1p0()));
+          sb.append(", ").append(dec2Format.format(loc.z2p5()));
         }
         return sb.toString();
       }
@@ -385,27 +493,29 @@ final class NshmpSiteFiles {
           .append(", z1p0")
           .append(", z2p5");
     }
-    Files.write(
-        out,
+    write(out, path -> Files.write(
+        path,
         Iterables.concat(ImmutableList.of(header.toString()), lines),
-        StandardCharsets.UTF_8);
+        StandardCharsets.UTF_8));
   }
 
   private static void writeJsonSites(Path out, Collection<? extends NamedLocation> sites)
       throws IOException {
 
-    GeoJson.Builder b = GeoJson.builder();
-    Properties.Builder props = Properties.builder()
-        .put(Style.MARKER_SIZE, "small");
-
-    for (NamedLocation loc : sites) {
-      b.add(Feature.point(loc.location())
-          .properties(props
-              .put(Style.TITLE, loc.toString())
-              .build())
-          .build());
-    }
-    b.build().write(out);
+    write(out, path -> {
+      GeoJson.Builder b = GeoJson.builder();
+      Properties.Builder props = Properties.builder()
+          .put(Style.MARKER_SIZE, "small");
+
+      for (NamedLocation loc : sites) {
+        b.add(Feature.point(loc.location())
+            .properties(props
+                .put(Style.TITLE, loc.toString())
+                .build())
+            .build());
+      }
+      b.build().write(path);
+    });
   }
 
   private static void writeCybershakeJsonSites(
@@ -413,24 +523,26 @@ final class NshmpSiteFiles {
       Collection<CybershakeSite> sites,
       CybershakeVs30 vs30) throws IOException {
 
-    GeoJson.Builder b = GeoJson.builder();
-    Properties.Builder props = Properties.builder()
-        .put(Style.MARKER_SIZE, "small");
-
-    for (CybershakeSite loc : sites) {
-      props.put(Style.TITLE, loc.name());
-      if (vs30 != CybershakeVs30.NONE) {
-        props.put(
-            "vs30",
-            (vs30 == CybershakeVs30.WILLS) ? loc.willsVs30() : loc.cvmVs30())
-            .put("z1p0", loc.z1p0())
-            .put("z2p5", loc.z2p5());
+    write(out, path -> {
+      GeoJson.Builder b = GeoJson.builder();
+      Properties.Builder props = Properties.builder()
+          .put(Style.MARKER_SIZE, "small");
+
+      for (CybershakeSite loc : sites) {
+        props.put(Style.TITLE, loc.name());
+        if (vs30 != CybershakeVs30.NONE) {
+          props.put(
+              "vs30",
+              (vs30 == CybershakeVs30.WILLS) ? loc.willsVs30() : loc.cvmVs30())
+              .put("z1p0", loc.z1p0())
+              .put("z2p5", loc.z2p5());
+        }
+        b.add(Feature.point(loc.location())
+            .properties(props.build())
+            .build());
       }
-      b.add(Feature.point(loc.location())
-          .properties(props.build())
-          .build());
-    }
-    b.build().write(out);
+      b.build().write(path);
+    });
   }
 
   private static final Function<NamedLocation, NamedLocation> adjustLocation_0p1() {
@@ -0,0 +1,152 @@
+package gov.usgs.earthquake.nshmp.site;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.Arrays;
+
+import gov.usgs.earthquake.nshmp.geo.Location;
+import gov.usgs.earthquake.nshmp.geo.LocationList;
+
+/**
+ * Precomputed point-in-polygon test. A polygon defined by two coordinates is
+ * treated as the rectangle they span. Other polygons are tested by ray casting
+ * after a bounding box check; edges are bucketed by latitude band so that only
+ * the few edges that can cross a horizontal ray through a point are examined.
+ *
+ * <p>Points that fall exactly on an edge may or may not be considered inside.
+ * Longitudes are compared as given; a point is also tested with its longitude
+ * shifted by ±360° so that polygons defined across the antimeridian (e.g.
+ * Alaska) contain points on either side of it.
+ *
+ * @author U.S. Geological Survey
+ */
+final class PolygonIndex {
+
+  /* Maximum number of latitude bands used to bucket edges. */
+  private static final int MAX_BANDS = 64;
+
+  private final double minLon;
+  private final double maxLon;
+  private final double minLat;
+  private final double maxLat;
+  private final boolean rectangle;
+
+  /* Edge i runs from vertex i to vertex i + 1; the polygon is closed. */
+  private final double[] lons;
+  private final double[] lats;
+  private final double bandHeight;
+  private final int[][] bands;
+
+  private PolygonIndex(LocationList coordinates) {
+    int size = coordinates.size();
+    checkArgument(size >= 2, "Polygon requires at least 2 coordinates");
+    lons = new double[size + 1];
+    lats = new double[size + 1];
+    int i = 0;
+    for (Location loc : coordinates) {
+      lons[i] = loc.longitude;
+      lats[i] = loc.latitude;
+      i++;
+    }
+    lons[size] = lons[0];
+    lats[size] = lats[0];
+
+    minLon = Arrays.stream(lons).min().getAsDouble();
+    maxLon = Arrays.stream(lons).max().getAsDouble();
+    minLat = Arrays.stream(lats).min().getAsDouble();
+    maxLat = Arrays.stream(lats).max().getAsDouble();
+    rectangle = (size == 2);
+
+    int bandCount = rectangle ? 0 : Math.min(MAX_BANDS, size);
+    bandHeight = (maxLat - minLat) / Math.max(bandCount, 1);
+    bands = new int[bandCount][];
+    if (!rectangle) {
+      int[] counts = new int[bandCount];
+      for (int edge = 0; edge < size; edge++) {
+        for (int band = band(edgeMin(edge)); band <= band(edgeMax(edge)); band++) {
+          counts[band]++;
+        }
+      }
+      for (int band = 0; band < bandCount; band++) {
+        bands[band] = new int[counts[band]];
+        counts[band] = 0;
+      }
+      for (int edge = 0; edge < size; edge++) {
+        for (int band = band(edgeMin(edge)); band <= band(edgeMax(edge)); band++) {
+          bands[band][counts[band]++] = edge;
+        }
+      }
+    }
+  }
+
+  /**
+   * Create an index for the supplied polygon.
+   *
+   * @param coordinates the polygon vertices, or two corners of a rectangle
+   */
+  static PolygonIndex create(LocationList coordinates) {
+    return new PolygonIndex(coordinates);
+  }
+
+  /**
+   * Return whether the supplied location is inside the polygon.
+   *
+   * @param location to test
+   */
+  boolean contains(Location location) {
+    double lon = location.longitude;
+    double lat = location.latitude;
+    return contains(lon, lat) || contains(lon - 360.0, lat) || contains(lon + 360.0, lat);
+  }
+
+  private boolean contains(double lon, double lat) {
+    if (lon < minLon || lon > maxLon || lat < minLat || lat > maxLat) {
+      return false;
+    }
+    if (rectangle) {
+      return true;
+    }
+    boolean inside = false;
+    for (int edge : bands[band(lat)]) {
+      double lat0 = lats[edge];
+      double lat1 = lats[edge + 1];
+      if ((lat0 > lat) != (lat1 > lat)) {
+        double lon0 = lons[edge];
+        double crossing = lon0 + (lat - lat0) * (lons[edge + 1] - lon0) / (lat1 - lat0);
+        if (lon < crossing) {
+          inside = !inside;
+        }
+      }
+    }
+    return inside;
+  }
+
+  double minLongitude() {
+    return minLon;
+  }
+
+  double maxLongitude() {
+    return maxLon;
+  }
+
+  double minLatitude() {
+    return minLat;
+  }
+
+  double maxLatitude() {
+    return maxLat;
+  }
+
+  private double edgeMin(int edge) {
+    return Math.min(lats[edge], lats[edge + 1]);
+  }
+
+  private double edgeMax(int edge) {
+    return Math.max(lats[edge], lats[edge + 1]);
+  }
+
+  private int band(double lat) {
+    int band = (int) ((lat - minLat) / bandHeight);
+    return Math.max(0, Math.min(bands.length - 1, band));
+  }
+}
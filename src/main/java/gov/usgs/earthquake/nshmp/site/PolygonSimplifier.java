@@ -0,0 +1,146 @@
+package gov.usgs.earthquake.nshmp.site;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import gov.usgs.earthquake.nshmp.geo.Location;
+import gov.usgs.earthquake.nshmp.geo.LocationList;
+
+/**
+ * Douglas–Peucker simplification of polygon outlines. Vertices are removed if
+ * they lie within a tolerance of the segment joining the retained vertices on
+ * either side. Distances are planar, in decimal degrees, which is adequate for
+ * the display of regional outlines.
+ *
+ * <p>A polygon is treated as a ring: it is split at its first vertex and the
+ * vertex farthest from it, and each half is simplified separately. A closed
+ * polygon (first and last vertices equal) remains closed. Polygons that would
+ * collapse to fewer than three distinct vertices, and two-coordinate
+ * rectangles, are returned unchanged.
+ *
+ * @author U.S. Geological Survey
+ */
+final class PolygonSimplifier {
+
+  private PolygonSimplifier() {}
+
+  /**
+   * Return a simplified copy of the supplied polygon.
+   *
+   * @param coordinates the polygon vertices
+   * @param tolerance the maximum distance, in decimal degrees, of any removed
+   *        vertex from the simplified outline
+   */
+  static LocationList simplify(LocationList coordinates, double tolerance) {
+    checkArgument(tolerance >= 0.0, "Tolerance [%s] must not be negative", tolerance);
+    List<Location> locs = new ArrayList<>();
+    coordinates.forEach(locs::add);
+    if (tolerance == 0.0 || locs.size() < 4) {
+      return coordinates;
+    }
+
+    boolean closed = locs.get(0).equals(locs.get(locs.size() - 1));
+    int n = closed ? locs.size() - 1 : locs.size();
+    double[] lons = new double[n];
+    double[] lats = new double[n];
+    for (int i = 0; i < n; i++) {
+      lons[i] = locs.get(i).longitude;
+      lats[i] = locs.get(i).latitude;
+    }
+
+    /* Split the ring at vertex 0 and the vertex farthest from it. */
+    int split = 1;
+    double maxDist = 0.0;
+    for (int i = 1; i < n; i++) {
+      double dist = Math.hypot(lons[i] - lons[0], lats[i] - lats[0]);
+      if (dist > maxDist) {
+        maxDist = dist;
+        split = i;
+      }
+    }
+
+    boolean[] keep = new boolean[n + 1];
+    keep[0] = true;
+    keep[split] = true;
+    keep[n] = true;
+    simplify(lons, lats, 0, split, tolerance, keep);
+    simplify(lons, lats, split, n, tolerance, keep);
+
+    int count = 0;
+    for (int i = 0; i < n; i++) {
+      count += keep[i] ? 1 : 0;
+    }
+    if (count < 3) {
+      return coordinates;
+    }
+
+    LocationList.Builder simplified = LocationList.builder();
+    for (int i = 0; i < n; i++) {
+      if (keep[i]) {
+        simplified.add(lons[i], lats[i]);
+      }
+    }
+    if (closed) {
+      simplified.add(lons[0], lats[0]);
+    }
+    return simplified.build();
+  }
+
+  /*
+   * Mark the vertices to keep between start and end, exclusive. Index n refers
+   * back to vertex 0. Recursion depth is bounded by the vertex count, which is
+   * small for the polygons of interest.
+   */
+  private static void simplify(
+      double[] lons,
+      double[] lats,
+      int start,
+      int end,
+      double tolerance,
+      boolean[] keep) {
+
+    if (end - start < 2) {
+      return;
+    }
+    int n = lons.length;
+    double x0 = lons[start];
+    double y0 = lats[start];
+    double x1 = lons[end % n];
+    double y1 = lats[end % n];
+
+    int farthest = -1;
+    double maxDist = tolerance;
+    for (int i = start + 1; i < end; i++) {
+      double dist = segmentDistance(lons[i], lats[i], x0, y0, x1, y1);
+      if (dist > maxDist) {
+        maxDist = dist;
+        farthest = i;
+      }
+    }
+    if (farthest < 0) {
+      return;
+    }
+    keep[farthest] = true;
+    simplify(lons, lats, start, farthest, tolerance, keep);
+    simplify(lons, lats, farthest, end, tolerance, keep);
+  }
+
+  /* Distance from point (x, y) to the segment (x0, y0)–(x1, y1). */
+  static double segmentDistance(
+      double x, double y,
+      double x0, double y0,
+      double x1, double y1) {
+
+    double dx = x1 - x0;
+    double dy = y1 - y0;
+    double lengthSq = dx * dx + dy * dy;
+    if (lengthSq == 0.0) {
+      return Math.hypot(x - x0, y - y0);
+    }
+    double t = ((x - x0) * dx + (y - y0) * dy) / lengthSq;
+    t = Math.max(0.0, Math.min(1.0, t));
+    return Math.hypot(x - (x0 + t * dx), y - (y0 + t * dy));
+  }
+}
@@ -0,0 +1,133 @@
+package gov.usgs.earthquake.nshmp.site;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
+
+import gov.usgs.earthquake.nshmp.Maths;
+import gov.usgs.earthquake.nshmp.geo.Location;
+import gov.usgs.earthquake.nshmp.model.SiteData;
+
+/**
+ * Memoizing wrapper around {@link SiteData}. Locations are snapped to the
+ * nearest node of a grid with a fixed resolution and site data is looked up
+ * once per node, so repeated lookups at, and near, the same location are
+ * served from memory. The number of nodes retained is bounded; the least
+ * recently used nodes are evicted first.
+ *
+ * <p>Because lookups are made at grid nodes, values may differ slightly from
+ * those at the exact location. Choose a resolution finer than that of the
+ * underlying basin depth data.
+ *
+ * @author U.S. Geological Survey
+ */
+public final class SiteDataCache {
+
+  private final SiteData siteData;
+  private final Function<Location, SiteData.Values> lookup;
+  private final double resolution;
+  private final int scale;
+  private final LoadingCache<Long, SiteData.Values> cache;
+
+  /* Lookups are made with the supplied function; visible for testing. */
+  SiteDataCache(
+      SiteData siteData,
+      Function<Location, SiteData.Values> lookup,
+      double resolution,
+      long maxSize) {
+    checkArgument(resolution > 0.0, "Resolution [%s] must be positive", resolution);
+    checkArgument(maxSize > 0, "Max size [%s] must be positive", maxSize);
+    this.siteData = checkNotNull(siteData);
+    this.lookup = checkNotNull(lookup);
+    this.resolution = resolution;
+    this.scale = Math.max(0, (int) Math.ceil(-Math.log10(resolution))) + 1;
+    this.cache = CacheBuilder.newBuilder()
+        .maximumSize(maxSize)
+        .recordStats()
+        .build(CacheLoader.from(this::load));
+  }
+
+  /**
+   * Create a new cache.
+   *
+   * @param siteData the site data to look up
+   * @param resolution the grid spacing, in decimal degrees, to which lookup
+   *        locations are snapped
+   * @param maxSize the maximum number of grid nodes to retain
+   */
+  public static SiteDataCache create(SiteData siteData, double resolution, long maxSize) {
+    return new SiteDataCache(siteData, siteData::get, resolution, maxSize);
+  }
+
+  /**
+   * Return the site data at the grid node nearest the supplied location.
+   *
+   * @param location of interest
+   */
+  public SiteData.Values get(Location location) {
+    return cache.getUnchecked(key(location));
+  }
+
+  /**
+   * Return the site data for each of the supplied locations. Locations that
+   * snap to the same grid node share a single lookup.
+   *
+   * @param locations of interest
+   * @return a map of site data in the iteration order of {@code locations}
+   */
+  public Map<Location, SiteData.Values> getAll(Collection<Location> locations) {
+    Map<Location, Long> keys = new LinkedHashMap<>();
+    for (Location location : locations) {
+      keys.put(location, key(location));
+    }
+    Set<Long> uniqueKeys = new HashSet<>(keys.values());
+    Map<Long, SiteData.Values> values;
+    try {
+      values = cache.getAll(uniqueKeys);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Site data lookup failed", e);
+    }
+    Map<Location, SiteData.Values> result = new LinkedHashMap<>();
+    keys.forEach((location, key) -> result.put(location, values.get(key)));
+    return result;
+  }
+
+  /** The site data wrapped by this cache. */
+  public SiteData siteData() {
+    return siteData;
+  }
+
+  /** Hit, miss, and eviction statistics. */
+  public CacheStats stats() {
+    return cache.stats();
+  }
+
+  /* Pack grid row and column into a single key. */
+  private long key(Location location) {
+    long row = Math.round(location.latitude / resolution);
+    long col = Math.round(location.longitude / resolution);
+    return (row << 32) ^ (col & 0xffffffffL);
+  }
+
+  private SiteData.Values load(Long key) {
+    int row = (int) (key >> 32);
+    int col = (int) (long) key;
+    Location node = Location.create(
+        Maths.round(col * resolution, scale),
+        Maths.round(row * resolution, scale));
+    return lookup.apply(node);
+  }
+
+}
@@ -0,0 +1,144 @@
+package gov.usgs.earthquake.nshmp.www;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+/**
+ * Local disk cache of models embedded in a JAR file. Reading a model through a
+ * zip file system is slow, so an embedded model is extracted once to a
+ * directory named for a hash of its JAR entries and loaded from there on
+ * subsequent starts. The hash covers the name, size, and CRC of each entry, so
+ * a rebuilt JAR with a changed model is extracted to a new directory while an
+ * unchanged model is reused without reading any entry contents.
+ *
+ * @author U.S. Geological Survey
+ */
+final class JarModelCache {
+
+  private static final Logger LOG = LoggerFactory.getLogger(JarModelCache.class);
+
+  /* Written last; a directory without it is an incomplete extraction. */
+  private static final String MARKER = ".extracted";
+
+  private JarModelCache() {}
+
+  /**
+   * Return the path to a local copy of a model directory embedded in a JAR
+   * file, extracting it if necessary.
+   *
+   * @param jar the JAR file
+   * @param modelDir the model directory within the JAR, e.g.
+   *        {@code /nshms/nshm-conus}
+   * @param cacheDir the cache root directory
+   */
+  static Path extract(Path jar, String modelDir, Path cacheDir) throws IOException {
+    String prefix = modelDir.replaceAll("^/+", "").replaceAll("/*$", "/");
+    try (ZipFile zip = new ZipFile(jar.toFile())) {
+      List<? extends ZipEntry> entries = zip.stream()
+          .filter(entry -> entry.getName().startsWith(prefix))
+          .sorted(Comparator.comparing(ZipEntry::getName))
+          .collect(Collectors.toList());
+      if (entries.isEmpty()) {
+        throw new IOException("No model at [" + modelDir + "] in " + jar);
+      }
+
+      String hash = hash(entries);
+      String name = Path.of(prefix).getFileName().toString();
+      Path target = cacheDir.resolve(name + "-" + hash.substring(0, 16));
+      if (isExtracted(target, hash)) {
+        LOG.info("Using extracted model: {}", target);
+        return target;
+      }
+
+      LOG.info("Extracting model [{}] to {}", modelDir, target);
+      Stopwatch sw = Stopwatch.createStarted();
+      Files.createDirectories(cacheDir);
+      Path tmp = Files.createTempDirectory(cacheDir, name + "-");
+      try {
+        for (ZipEntry entry : entries) {
+          Path dest = tmp.resolve(entry.getName().substring(prefix.length())).normalize();
+          if (!dest.startsWith(tmp)) {
+            throw new IOException("Invalid model entry: " + entry.getName());
+          }
+          if (entry.isDirectory()) {
+            Files.createDirectories(dest);
+            continue;
+          }
+          Files.createDirectories(dest.getParent());
+          try (InputStream in = zip.getInputStream(entry)) {
+            Files.copy(in, dest);
+          }
+        }
+        Files.writeString(tmp.resolve(MARKER), hash, UTF_8);
+
+        /* Defer to a concurrent extraction; replace an incomplete one. */
+        if (isExtracted(target, hash)) {
+          delete(tmp);
+        } else {
+          delete(target);
+          try {
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+          } catch (FileAlreadyExistsException | DirectoryNotEmptyException e) {
+            delete(tmp);
+          }
+        }
+      } catch (IOException | RuntimeException e) {
+        delete(tmp);
+        throw e;
+      }
+      LOG.info("Extracted model: {} files ({})", entries.size(), sw);
+      return target;
+    }
+  }
+
+  private static boolean isExtracted(Path dir, String hash) throws IOException {
+    Path marker = dir.resolve(MARKER);
+    return Files.exists(marker) && Files.readString(marker, UTF_8).equals(hash);
+  }
+
+  private static String hash(List<? extends ZipEntry> entries) {
+    Hasher hasher = Hashing.sha256().newHasher();
+    for (ZipEntry entry : entries) {
+      hasher.putString(entry.getName(), UTF_8)
+          .putLong(entry.getSize())
+          .putLong(entry.getCrc());
+    }
+    return hasher.hash().toString();
+  }
+
+  private static void delete(Path dir) throws IOException {
+    if (!Files.exists(dir)) {
+      return;
+    }
+    try (Stream<Path> paths = Files.walk(dir)) {
+      paths.sorted(Comparator.reverseOrder()).forEach(path -> {
+        try {
+          Files.delete(path);
+        } catch (IOException ioe) {
+          throw new UncheckedIOException(ioe);
+        }
+      });
+    }
+  }
+}
@@ -0,0 +1,210 @@
+package gov.usgs.earthquake.nshmp.www;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import com.google.common.cache.CacheStats;
+
+/**
+ * Service metrics rendered in the Prometheus text exposition format. Metrics
+ * include request latency histograms by endpoint and status, calculation
+ * executor saturation, cache statistics, model load times, and JVM memory.
+ *
+ * @author U.S. Geological Survey
+ */
+public final class Metrics {
+
+  /* Latency histogram bucket upper bounds, in seconds. */
+  private static final double[] BUCKETS = {
+      0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30, 60 };
+
+  private static final Map<String, Histogram> REQUESTS = new ConcurrentHashMap<>();
+  private static final Map<String, ThreadPoolExecutor> EXECUTORS = new ConcurrentHashMap<>();
+  private static final Map<String, Supplier<CacheStats>> CACHES = new ConcurrentHashMap<>();
+  private static final Map<String, Double> MODEL_LOAD_SECONDS = new ConcurrentHashMap<>();
+
+  private Metrics() {}
+
+  /**
+   * Record the latency of a request.
+   *
+   * @param method the HTTP method
+   * @param endpoint the matched route template
+   * @param status the response status code
+   * @param nanos the elapsed time in nanoseconds
+   */
+  public static void request(String method, String endpoint, int status, long nanos) {
+    String labels = String.format(
+        "method=\"%s\",endpoint=\"%s\",status=\"%s\"",
+        method, escape(endpoint), status);
+    REQUESTS.computeIfAbsent(labels, key -> new Histogram()).record(nanos / 1e9);
+  }
+
+  /**
+   * Register an executor whose pool size and queue depth are reported.
+   *
+   * @param name the executor name
+   * @param executor the executor
+   */
+  public static void executor(String name, ThreadPoolExecutor executor) {
+    EXECUTORS.put(name, executor);
+  }
+
+  /**
+   * Register a cache whose statistics are reported. The cache must be built
+   * with {@code recordStats()}.
+   *
+   * @param name the cache name
+   * @param stats supplier of current cache statistics
+   */
+  public static void cache(String name, Supplier<CacheStats> stats) {
+    CACHES.put(name, stats);
+  }
+
+  /**
+   * Record the time taken to load a model.
+   *
+   * @param key the model key
+   * @param seconds the load time in seconds
+   */
+  public static void modelLoad(String key, double seconds) {
+    MODEL_LOAD_SECONDS.put(key, seconds);
+  }
+
+  /** Render all metrics in the Prometheus text format. */
+  public static String prometheus() {
+    StringBuilder sb = new StringBuilder();
+
+    header(sb, "nshmp_http_request_seconds", "histogram", "HTTP request latency");
+    new TreeMap<>(REQUESTS).forEach((labels, histogram) -> histogram.write(
+        sb, "nshmp_http_request_seconds", labels));
+
+    header(sb, "nshmp_executor_active_threads", "gauge", "Executor threads running tasks");
+    EXECUTORS.forEach((name, exec) -> sample(
+        sb, "nshmp_executor_active_threads", executorLabel(name), exec.getActiveCount()));
+    header(sb, "nshmp_executor_pool_threads", "gauge", "Executor pool size");
+    EXECUTORS.forEach((name, exec) -> sample(
+        sb, "nshmp_executor_pool_threads", executorLabel(name), exec.getMaximumPoolSize()));
+    header(sb, "nshmp_executor_queued_tasks", "gauge", "Executor tasks waiting to run");
+    EXECUTORS.forEach((name, exec) -> sample(
+        sb, "nshmp_executor_queued_tasks", executorLabel(name), exec.getQueue().size()));
+    header(sb, "nshmp_executor_completed_tasks_total", "counter", "Executor tasks completed");
+    EXECUTORS.forEach((name, exec) -> sample(
+        sb, "nshmp_executor_completed_tasks_total", executorLabel(name),
+        exec.getCompletedTaskCount()));
+
+    header(sb, "nshmp_cache_requests_total", "counter", "Cache lookups by result");
+    for (Entry<String, Supplier<CacheStats>> entry : new TreeMap<>(CACHES).entrySet()) {
+      CacheStats stats = entry.getValue().get();
+      String cache = "cache=\"" + escape(entry.getKey()) + "\"";
+      sample(sb, "nshmp_cache_requests_total", cache + ",result=\"hit\"", stats.hitCount());
+      sample(sb, "nshmp_cache_requests_total", cache + ",result=\"miss\"", stats.missCount());
+    }
+    header(sb, "nshmp_cache_evictions_total", "counter", "Cache evictions");
+    new TreeMap<>(CACHES).forEach((name, stats) -> sample(
+        sb, "nshmp_cache_evictions_total", "cache=\"" + escape(name) + "\"",
+        stats.get().evictionCount()));
+
+    header(sb, "nshmp_model_load_seconds", "gauge", "Time taken to load a model");
+    new TreeMap<>(MODEL_LOAD_SECONDS).forEach((key, seconds) -> sample(
+        sb, "nshmp_model_load_seconds", "model=\"" + escape(key) + "\"", seconds));
+
+    var memory = ManagementFactory.getMemoryMXBean();
+    header(sb, "nshmp_jvm_memory_bytes", "gauge", "JVM memory by area and kind");
+    memory(sb, "heap", memory.getHeapMemoryUsage());
+    memory(sb, "nonheap", memory.getNonHeapMemoryUsage());
+
+    header(sb, "nshmp_jvm_gc_seconds_total", "counter", "JVM garbage collection time");
+    for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+      sample(sb, "nshmp_jvm_gc_seconds_total", "gc=\"" + escape(gc.getName()) + "\"",
+          Math.max(0, gc.getCollectionTime()) / 1e3);
+    }
+
+    header(sb, "nshmp_jvm_threads", "gauge", "JVM live threads");
+    sample(sb, "nshmp_jvm_threads", "", ManagementFactory.getThreadMXBean().getThreadCount());
+
+    return sb.toString();
+  }
+
+  private static String executorLabel(String name) {
+    return "executor=\"" + escape(name) + "\"";
+  }
+
+  private static void memory(StringBuilder sb, String area, MemoryUsage usage) {
+    String name = "nshmp_jvm_memory_bytes";
+    sample(sb, name, "area=\"" + area + "\",kind=\"used\"", usage.getUsed());
+    sample(sb, name, "area=\"" + area + "\",kind=\"committed\"", usage.getCommitted());
+    if (usage.getMax() >= 0) {
+      sample(sb, name, "area=\"" + area + "\",kind=\"max\"", usage.getMax());
+    }
+  }
+
+  private static void header(StringBuilder sb, String name, String type, String help) {
+    sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+    sb.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+  }
+
+  private static void sample(StringBuilder sb, String name, String labels, double value) {
+    sb.append(name);
+    if (!labels.isEmpty()) {
+      sb.append('{').append(labels).append('}');
+    }
+    sb.append(' ').append(format(value)).append('\n');
+  }
+
+  private static String format(double value) {
+    if (value == Math.rint(value) && !Double.isInfinite(value)) {
+      return Long.toString((long) value);
+    }
+    return Double.toString(value);
+  }
+
+  private static String escape(String value) {
+    return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+  }
+
+  private static final class Histogram {
+
+    final LongAdder[] counts = new LongAdder[BUCKETS.length + 1];
+    final LongAdder count = new LongAdder();
+    final DoubleAdder sum = new DoubleAdder();
+
+    Histogram() {
+      for (int i = 0; i < counts.length; i++) {
+        counts[i] = new LongAdder();
+      }
+    }
+
+    void record(double seconds) {
+      int bucket = 0;
+      while (bucket < BUCKETS.length && seconds > BUCKETS[bucket]) {
+        bucket++;
+      }
+      counts[bucket].increment();
+      count.increment();
+      sum.add(seconds);
+    }
+
+    /* Prometheus buckets are cumulative. */
+    void write(StringBuilder sb, String name, String labels) {
+      long cumulative = 0;
+      for (int i = 0; i < BUCKETS.length; i++) {
+        cumulative += counts[i].sum();
+        sample(sb, name + "_bucket", labels + ",le=\"" + BUCKETS[i] + "\"", cumulative);
+      }
+      cumulative += counts[BUCKETS.length].sum();
+      sample(sb, name + "_bucket", labels + ",le=\"+Inf\"", cumulative);
+      sample(sb, name + "_sum", labels, sum.sum());
+      sample(sb, name + "_count", labels, count.sum());
+    }
+  }
+}
@@ -0,0 +1,35 @@
+package gov.usgs.earthquake.nshmp.www;
+
+import io.micronaut.context.annotation.Value;
+import io.micronaut.http.HttpRequest;
+import io.micronaut.http.HttpResponse;
+import io.micronaut.http.HttpStatus;
+import io.micronaut.http.annotation.Controller;
+import io.micronaut.http.annotation.Get;
+import io.swagger.v3.oas.annotations.Hidden;
+
+/**
+ * Service metrics in the Prometheus text exposition format. Metrics are only
+ * served to requests from the local host unless
+ * {@code nshmp-haz.metrics-remote} is enabled.
+ *
+ * @author U.S. Geological Survey
+ */
+@Hidden
+@Controller("/metrics")
+public class MetricsController {
+
+  static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+  @Value("${nshmp-haz.metrics-remote:false}")
+  private boolean remote;
+
+  @Get
+  public HttpResponse<String> doGetMetrics(HttpRequest<?> http) {
+    if (!remote && !http.getRemoteAddress().getAddress().isLoopbackAddress()) {
+      return HttpResponse.status(HttpStatus.FORBIDDEN);
+    }
+    return HttpResponse.ok(Metrics.prometheus())
+        .contentType(CONTENT_TYPE);
+  }
+}
@@ -0,0 +1,40 @@
+package gov.usgs.earthquake.nshmp.www;
+
+import org.reactivestreams.Publisher;
+
+import io.micronaut.core.async.publisher.Publishers;
+import io.micronaut.http.HttpAttributes;
+import io.micronaut.http.HttpRequest;
+import io.micronaut.http.MutableHttpResponse;
+import io.micronaut.http.annotation.Filter;
+import io.micronaut.http.filter.HttpServerFilter;
+import io.micronaut.http.filter.ServerFilterChain;
+
+/**
+ * Records the latency of each request in {@link Metrics}, labeled by the
+ * matched route template rather than the request path to keep the number of
+ * distinct series small.
+ *
+ * @author U.S. Geological Survey
+ */
+@Filter("/**")
+public class MetricsFilter implements HttpServerFilter {
+
+  @Override
+  public Publisher<MutableHttpResponse<?>> doFilter(
+      HttpRequest<?> request,
+      ServerFilterChain chain) {
+    long start = System.nanoTime();
+    return Publishers.map(chain.proceed(request), response -> {
+      String endpoint = request.getAttribute(HttpAttributes.URI_TEMPLATE, String.class)
+          .map(template -> template.replaceAll("\\{[?&].*$", ""))
+          .orElse("unmatched");
+      Metrics.request(
+          request.getMethodName(),
+          endpoint,
+          response.code(),
+          System.nanoTime() - start);
+      return response;
+    });
+  }
+}
@@ -0,0 +1,131 @@
+package gov.usgs.earthquake.nshmp.www;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.micronaut.context.annotation.Value;
+import io.micronaut.http.HttpRequest;
+import io.micronaut.http.HttpResponse;
+import io.micronaut.http.HttpStatus;
+import io.micronaut.http.MediaType;
+import io.micronaut.http.annotation.Controller;
+import io.micronaut.http.annotation.Get;
+import io.micronaut.http.annotation.PathVariable;
+import io.micronaut.http.annotation.Post;
+import io.micronaut.scheduling.TaskExecutors;
+import io.micronaut.scheduling.annotation.ExecuteOn;
+import io.swagger.v3.oas.annotations.Hidden;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+
+/**
+ * Micronaut web service controller for the models served by this instance.
+ * Requests to other services select a model with the {@code model} query
+ * parameter; the default model is used if none is supplied.
+ *
+ * <p>See src/main/resources/application.yml nshmp-haz.models for additional
+ * models and nshmp-haz.model-admin to enable the reload and evict endpoints.
+ *
+ * @author U.S. Geological Survey
+ */
+@Tag(
+    name = ModelController.NAME,
+    description = "USGS NSHM installed model registry")
+@Controller("/models")
+public class ModelController {
+
+  static final String NAME = "Models";
+  static final Logger LOG = LoggerFactory.getLogger(ModelController.class);
+
+  @Value("${nshmp-haz.model-admin:false}")
+  private boolean admin;
+
+  @Operation(
+      summary = "List the installed models",
+      description = "Returns the key, path, and load state of each installed model",
+      operationId = "models")
+  @Get(produces = MediaType.APPLICATION_JSON)
+  public HttpResponse<String> doGetModels(HttpRequest<?> http) {
+    try {
+      var url = http.getUri().toString();
+      var registry = ServletUtil.models();
+      List<ModelInfo> models = registry.keys().stream()
+          .map(key -> new ModelInfo(registry, key))
+          .collect(Collectors.toList());
+      var body = ResponseBody.success()
+          .name(NAME)
+          .url(url)
+          .metadata(new ResponseMetadata(HazVersion.appVersions()))
+          .request(url)
+          .response(models)
+          .build();
+      return HttpResponse.ok(ServletUtil.GSON2.toJson(body));
+    } catch (Exception e) {
+      return ServletUtil.error(LOG, e, NAME, http.getUri().toString());
+    }
+  }
+
+  /* Reloading blocks until the model is parsed, so it runs off the event loop. */
+  @Hidden
+  @ExecuteOn(TaskExecutors.IO)
+  @Post(uri = "/{key}/reload", produces = MediaType.APPLICATION_JSON)
+  public HttpResponse<String> doReload(HttpRequest<?> http, @PathVariable String key) {
+    if (!admin) {
+      return HttpResponse.status(HttpStatus.FORBIDDEN);
+    }
+    try {
+      ServletUtil.models().reload(key);
+      return doGetModels(http);
+    } catch (Exception e) {
+      return ServletUtil.error(LOG, e, NAME, http.getUri().toString());
+    }
+  }
+
+  @Hidden
+  @Post(uri = "/{key}/evict", produces = MediaType.APPLICATION_JSON)
+  public HttpResponse<String> doEvict(HttpRequest<?> http, @PathVariable String key) {
+    if (!admin) {
+      return HttpResponse.status(HttpStatus.FORBIDDEN);
+    }
+    try {
+      ServletUtil.models().evict(key);
+      return doGetModels(http);
+    } catch (Exception e) {
+      return ServletUtil.error(LOG, e, NAME, http.getUri().toString());
+    }
+  }
+
+  static class ModelInfo {
+
+    final String key;
+    final String path;
+    final boolean loaded;
+    final boolean isDefault;
+
+    ModelInfo(ModelRegistry registry, String key) {
+      this.key = key;
+      this.path = registry.path(key).toString();
+      this.loaded = registry.isLoaded(key);
+      this.isDefault = key.equals(registry.defaultKey());
+    }
+
+    public String getKey() {
+      return key;
+    }
+
+    public String getPath() {
+      return path;
+    }
+
+    public boolean getLoaded() {
+      return loaded;
+    }
+
+    public boolean getDefault() {
+      return isDefault;
+    }
+  }
+}
@@ -0,0 +1,291 @@
+package gov.usgs.earthquake.nshmp.www;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import gov.usgs.earthquake.nshmp.ResultStore;
+import gov.usgs.earthquake.nshmp.model.HazardModel;
+
+/**
+ * Registry of the hazard models served by a web service instance. Models are
+ * identified by a key and loaded from disk (or a JAR file) in the background
+ * on first use; request threads never wait on a model load. A model may be
+ * evicted, releasing its memory until it is next requested, or reloaded in
+ * place; requests in flight continue to use the model instance they started
+ * with. Cached responses are cleared whenever a model is evicted or reloaded.
+ * The files of each model are fingerprinted as it loads, so stored results
+ * are not reused after a model is edited and reloaded.
+ *
+ * @author U.S. Geological Survey
+ */
+public final class ModelRegistry {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ModelRegistry.class);
+
+  /* Models load on daemon threads, never on request threads. */
+  private static final ExecutorService LOADER = Executors.newCachedThreadPool(
+      new ThreadFactoryBuilder()
+          .setNameFormat("model-loader-%d")
+          .setDaemon(true)
+          .build());
+
+  private final String defaultKey;
+  private final Map<String, Entry> entries;
+  private final Function<Path, HazardModel> loader;
+
+  /* Fingerprints of the files of each loaded model instance. */
+  private final Cache<HazardModel, String> fingerprints = CacheBuilder.newBuilder()
+      .weakKeys()
+      .build();
+
+  /**
+   * Create a new registry.
+   *
+   * @param defaultKey the key of the model used when a request does not
+   *        specify one
+   * @param paths model paths by key, in display order
+   * @param loader function that loads a model from a path
+   */
+  ModelRegistry(
+      String defaultKey,
+      Map<String, Path> paths,
+      Function<Path, HazardModel> loader) {
+    checkArgument(paths.containsKey(defaultKey), "Missing default model [%s]", defaultKey);
+    this.defaultKey = defaultKey;
+    this.loader = loader;
+    Map<String, Entry> entries = new LinkedHashMap<>();
+    paths.forEach((key, path) -> entries.put(key, new Entry(path)));
+    this.entries = entries;
+  }
+
+  /** The key of the default model. */
+  public String defaultKey() {
+    return defaultKey;
+  }
+
+  /** The keys of all registered models. */
+  public Set<String> keys() {
+    return entries.keySet();
+  }
+
+  /**
+   * The path to a model.
+   *
+   * @param key the model key
+   */
+  public Path path(String key) {
+    return entry(key).path;
+  }
+
+  /**
+   * The fingerprint of the files of a model, computed as the model was loaded.
+   *
+   * @param model a model returned by this registry
+   * @see ResultStore#fingerprint(Path)
+   */
+  public String fingerprint(HazardModel model) {
+    String fingerprint = fingerprints.getIfPresent(model);
+    checkArgument(fingerprint != null, "Model [%s] not loaded by this registry", model.name());
+    return fingerprint;
+  }
+
+  /**
+   * Whether a model is currently loaded.
+   *
+   * @param key the model key
+   */
+  public boolean isLoaded(String key) {
+    return entry(key).model != null;
+  }
+
+  /**
+   * Return a model. A model that is not loaded is loaded in the background and
+   * this method does not wait for it: until the load completes, requests for
+   * the model fail with a {@link ModelLoadingException}. A failed load is
+   * retained and rethrown until the model is reloaded or evicted.
+   *
+   * @param key the model key
+   * @throws IllegalArgumentException if no model is registered for the key
+   * @throws ModelLoadingException if the model is loading
+   * @throws IllegalStateException if the model failed to load
+   */
+  public HazardModel get(String key) {
+    Entry entry = entry(key);
+    HazardModel model = entry.model;
+    if (model != null) {
+      return model;
+    }
+    CompletableFuture<HazardModel> load = load(key, entry);
+    if (!load.isDone()) {
+      throw new ModelLoadingException(key);
+    }
+    try {
+      return load.join();
+    } catch (CompletionException e) {
+      throw new IllegalStateException("Model [" + key + "] failed to load", e.getCause());
+    }
+  }
+
+  /**
+   * Load models in parallel, one thread per model, logging progress as each
+   * model completes. The returned future completes when all models are loaded
+   * and completes exceptionally if any model fails to load.
+   *
+   * @param keys the keys of the models to load
+   */
+  public CompletableFuture<Void> preload(Collection<String> keys) {
+    checkArgument(!keys.isEmpty(), "No models to load");
+    keys.forEach(this::entry);
+    LOG.info("Preloading {} model(s): {}", keys.size(), keys);
+    Stopwatch sw = Stopwatch.createStarted();
+    AtomicInteger count = new AtomicInteger();
+    CompletableFuture<?>[] loads = keys.stream()
+        .map(key -> load(key, entry(key))
+            .whenComplete((result, e) -> {
+              if (e != null) {
+                LOG.error("Failed to load model [" + key + "]", e);
+              } else {
+                LOG.info("Preloaded {} of {} model(s) ({})",
+                    count.incrementAndGet(), keys.size(), sw);
+              }
+            }))
+        .toArray(CompletableFuture[]::new);
+    return CompletableFuture.allOf(loads);
+  }
+
+  /**
+   * Load a fresh copy of a model and replace the current instance, if any. The
+   * current instance continues to serve requests until the new one is ready.
+   * This method blocks until the model is loaded.
+   *
+   * @param key the model key
+   */
+  public HazardModel reload(String key) {
+    Entry entry = entry(key);
+    HazardModel model = load(key, entry.path);
+    synchronized (entry) {
+      entry.model = model;
+      entry.load = CompletableFuture.completedFuture(model);
+    }
+    ResponseCache.clear();
+    return model;
+  }
+
+  /**
+   * Release a model. It will be loaded again when next requested.
+   *
+   * @param key the model key
+   */
+  public void evict(String key) {
+    Entry entry = entry(key);
+    synchronized (entry) {
+      entry.model = null;
+      entry.load = null;
+    }
+    ResponseCache.clear();
+    LOG.info("Evicted model [{}]", key);
+  }
+
+  private Entry entry(String key) {
+    Entry entry = entries.get(key);
+    checkArgument(entry != null, "Unknown model [%s]; expected one of %s", key, keys());
+    return entry;
+  }
+
+  /*
+   * Start loading a model unless a load is in progress or complete. A load
+   * installs its model only if it is still the entry's current load, so a load
+   * that completes after the model is evicted or reloaded is discarded.
+   */
+  private CompletableFuture<HazardModel> load(String key, Entry entry) {
+    synchronized (entry) {
+      if (entry.load == null) {
+        CompletableFuture<HazardModel> load = new CompletableFuture<>();
+        entry.load = load;
+        LOADER.execute(() -> {
+          try {
+            HazardModel model = load(key, entry.path);
+            synchronized (entry) {
+              if (entry.load == load) {
+                entry.model = model;
+              }
+            }
+            load.complete(model);
+          } catch (Throwable e) {
+            load.completeExceptionally(e);
+          }
+        });
+      }
+      return entry.load;
+    }
+  }
+
+  private HazardModel load(String key, Path path) {
+    LOG.info("Loading model [{}]: {}", key, path);
+    Stopwatch sw = Stopwatch.createStarted();
+    String fingerprint = fingerprint(key, path);
+    HazardModel model = loader.apply(path);
+    fingerprints.put(model, fingerprint);
+    LOG.info("Loaded model [{}]: {} ({})", key, model.name(), sw);
+    Metrics.modelLoad(key, sw.elapsed(TimeUnit.MILLISECONDS) / 1e3);
+    return model;
+  }
+
+  /* Files that cannot be read are logged; the model is then keyed by path. */
+  private static String fingerprint(String key, Path path) {
+    try {
+      return ResultStore.fingerprint(path);
+    } catch (IOException | UncheckedIOException e) {
+      LOG.warn("Failed to fingerprint model [" + key + "]: " + path, e);
+      return path.toAbsolutePath().normalize().toString();
+    }
+  }
+
+  private static final class Entry {
+
+    final Path path;
+    volatile HazardModel model;
+
+    /* The current or completed load; guarded by this entry. */
+    CompletableFuture<HazardModel> load;
+
+    Entry(Path path) {
+      this.path = path;
+    }
+  }
+
+  /**
+   * Thrown when a model is requested while it is loading. Services respond
+   * with {@code 503 Service Unavailable}.
+   */
+  public static final class ModelLoadingException extends IllegalStateException {
+
+    private static final long serialVersionUID = 1L;
+
+    ModelLoadingException(String key) {
+      super("Model [" + key + "] is loading");
+    }
+  }
+}
@@ -0,0 +1,75 @@
+package gov.usgs.earthquake.nshmp.www;
+
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Stopwatch;
+
+import gov.usgs.earthquake.nshmp.DisaggCalc;
+import gov.usgs.earthquake.nshmp.calc.CalcConfig;
+import gov.usgs.earthquake.nshmp.calc.Disaggregation;
+import gov.usgs.earthquake.nshmp.calc.Hazard;
+import gov.usgs.earthquake.nshmp.calc.HazardCalcs;
+import gov.usgs.earthquake.nshmp.calc.Site;
+import gov.usgs.earthquake.nshmp.geo.Location;
+import gov.usgs.earthquake.nshmp.gmm.Imt;
+import gov.usgs.earthquake.nshmp.model.HazardModel;
+
+/**
+ * Synthetic hazard and disaggregation calculations run after a model loads so
+ * that the hot paths of the calculation are JIT compiled before the service
+ * reports ready and the first user requests arrive.
+ *
+ * @author U.S. Geological Survey
+ */
+final class ModelWarmup {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ModelWarmup.class);
+
+  private static final double VS30 = 760.0;
+  private static final double RETURN_PERIOD = 2475.0;
+
+  /* Fractional part of the golden ratio; spreads latitudes evenly. */
+  private static final double PHI = 0.6180339887498949;
+
+  private ModelWarmup() {}
+
+  /**
+   * Compute hazard and disaggregate at a number of sites spread across the
+   * model bounds. Sites are distributed using a golden ratio sequence so small
+   * site counts still sample the whole region.
+   *
+   * @param model the model to exercise
+   * @param siteCount the number of sites
+   */
+  static void run(HazardModel model, int siteCount) {
+    LOG.info("Warming up model [{}]: {} sites", model.name(), siteCount);
+    Stopwatch total = Stopwatch.createStarted();
+    CalcConfig config = model.config();
+    Location min = model.bounds().min;
+    Location max = model.bounds().max;
+    for (int i = 0; i < siteCount; i++) {
+      double lonFraction = (i + 0.5) / siteCount;
+      double latFraction = (0.5 + i * PHI) % 1.0;
+      Location location = Location.create(
+          min.longitude + lonFraction * (max.longitude - min.longitude),
+          min.latitude + latFraction * (max.latitude - min.latitude));
+      Site site = ServletUtil.createSite(location, VS30, model.siteData());
+
+      /* Sites without sources nearby may not support disaggregation. */
+      Stopwatch sw = Stopwatch.createStarted();
+      try {
+        Hazard hazard = HazardCalcs.hazard(model, config, site, ServletUtil.CALC_EXECUTOR);
+        Map<Imt, Double> imls = DisaggCalc.imlsForReturnPeriod(hazard, RETURN_PERIOD);
+        Disaggregation.atImls(hazard, imls, ServletUtil.CALC_EXECUTOR);
+        LOG.info("Warmup site {} of {}: {} ({})", i + 1, siteCount, location, sw);
+      } catch (RuntimeException e) {
+        LOG.warn("Warmup site {} of {}: {} failed: {}", i + 1, siteCount, location,
+            e.getMessage());
+      }
+    }
+    LOG.info("Warmup complete ({})", total);
+  }
+}
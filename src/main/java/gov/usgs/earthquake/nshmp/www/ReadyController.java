@@ -0,0 +1,27 @@
+package gov.usgs.earthquake.nshmp.www;
+
+import io.micronaut.http.HttpResponse;
+import io.micronaut.http.HttpStatus;
+import io.micronaut.http.MediaType;
+import io.micronaut.http.annotation.Controller;
+import io.micronaut.http.annotation.Get;
+import io.swagger.v3.oas.annotations.Hidden;
+
+/**
+ * Readiness probe for load balancers and container orchestration. Returns
+ * {@code 200 OK} once the models loaded at startup are ready and
+ * {@code 503 Service Unavailable} while they are loading or if loading failed.
+ *
+ * @author U.S. Geological Survey
+ */
+@Hidden
+@Controller("/ready")
+public class ReadyController {
+
+  @Get(produces = MediaType.TEXT_PLAIN)
+  public HttpResponse<String> doGetReady() {
+    return ServletUtil.ready()
+        ? HttpResponse.ok("ready")
+        : HttpResponse.<String> status(HttpStatus.SERVICE_UNAVAILABLE).body("not ready");
+  }
+}
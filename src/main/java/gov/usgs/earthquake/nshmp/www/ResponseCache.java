@@ -0,0 +1,282 @@
+package gov.usgs.earthquake.nshmp.www;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import com.google.common.base.Splitter;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+import io.micronaut.http.HttpHeaders;
+import io.micronaut.http.HttpRequest;
+import io.micronaut.http.HttpResponse;
+import io.micronaut.http.MediaType;
+import io.micronaut.http.MutableHttpResponse;
+
+/**
+ * Cache of pre-encoded JSON responses that depend only on the request path,
+ * the requested model, and the installed models, for example service metadata.
+ * Other query parameters are ignored, so they neither affect a cached
+ * response nor add cache entries. A response body is
+ * serialized once and served as bytes thereafter; the cache is cleared when a
+ * model is evicted or reloaded (see {@link ModelRegistry}).
+ *
+ * <p>Cached responses carry {@code ETag} and {@code Last-Modified} headers and
+ * conditional GET requests ({@code If-None-Match}, {@code If-Modified-Since})
+ * are answered with {@code 304 Not Modified}. Bodies larger than a small
+ * threshold are also compressed once per supported content coding and the
+ * coding served is negotiated from the request {@code Accept-Encoding} header.
+ * Dynamic responses are compressed by the server using the Micronaut Netty
+ * defaults, which share the threshold used here.
+ *
+ * @author U.S. Geological Survey
+ */
+public final class ResponseCache {
+
+  /* Bound on the total size of cached response bodies. */
+  private static final long MAX_BYTES = 64L * 1024 * 1024;
+
+  /* Bodies smaller than this are not worth compressing. */
+  private static final int COMPRESSION_THRESHOLD = 1024;
+
+  private static final Cache<String, Entry> CACHE = CacheBuilder.newBuilder()
+      .maximumWeight(MAX_BYTES)
+      .<String, Entry> weigher((url, entry) -> entry.size())
+      .recordStats()
+      .build();
+
+  static {
+    Metrics.cache("response", CACHE::stats);
+  }
+
+  private ResponseCache() {}
+
+  /**
+   * Return the cached response for the supplied request, serializing a new
+   * response body on a cache miss. Errors thrown while serializing are
+   * rethrown unwrapped.
+   *
+   * @param request the HTTP request
+   * @param json function of the cache key, the request path and any
+   *        {@code model} query parameter, that returns the JSON response body
+   */
+  public static HttpResponse<?> get(
+      HttpRequest<?> request,
+      Function<String, String> json) throws ExecutionException {
+
+    String url = key(request);
+    Entry entry;
+    try {
+      entry = CACHE.get(url, () -> new Entry(json.apply(url)));
+    } catch (ExecutionException | UncheckedExecutionException | ExecutionError e) {
+      Throwables.throwIfUnchecked(e.getCause());
+      throw new ExecutionException(e.getCause());
+    }
+
+    /* Representations differ by encoding and so do their entity tags. */
+    Encoding encoding = entry.encoded.isEmpty()
+        ? Encoding.IDENTITY
+        : Encoding.negotiate(request.getHeaders().get(HttpHeaders.ACCEPT_ENCODING));
+    String etag = entry.etag(encoding);
+
+    if (entry.notModified(request, etag)) {
+      return HttpResponse.notModified()
+          .header(HttpHeaders.ETAG, etag);
+    }
+    MutableHttpResponse<byte[]> response = HttpResponse.ok(entry.body(encoding))
+        .contentType(MediaType.APPLICATION_JSON_TYPE)
+        .header(HttpHeaders.ETAG, etag)
+        .header(HttpHeaders.LAST_MODIFIED, entry.lastModified)
+        .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+    return (encoding == Encoding.IDENTITY)
+        ? response
+        : response.header(HttpHeaders.CONTENT_ENCODING, encoding.toString());
+  }
+
+  /* The request path and, if present, the model query parameter. */
+  private static String key(HttpRequest<?> request) {
+    String path = request.getPath();
+    return request.getParameters().getFirst(ServletUtil.MODEL_KEY)
+        .map(model -> path + "?" + ServletUtil.MODEL_KEY + "=" + model)
+        .orElse(path);
+  }
+
+  /** Remove all cached responses. */
+  public static void clear() {
+    CACHE.invalidateAll();
+  }
+
+  /*
+   * Supported content codings in order of preference. 'identity' is never sent
+   * as a Content-Encoding (RFC 9110 §8.4.1). The server does not compress
+   * responses that already carry a Content-Encoding, and identity bodies are
+   * only served when the server would not compress them either: they are
+   * below the shared compression threshold, or the client accepts neither
+   * gzip nor deflate.
+   */
+  enum Encoding {
+    GZIP,
+    DEFLATE,
+    IDENTITY;
+
+    private final String label = name().toLowerCase();
+
+    @Override
+    public String toString() {
+      return label;
+    }
+
+    byte[] encode(byte[] body) {
+      try {
+        var bytes = new ByteArrayOutputStream(body.length / 4);
+        try (OutputStream out = (this == GZIP)
+            ? new GZIPOutputStream(bytes)
+            : new DeflaterOutputStream(bytes)) {
+          out.write(body);
+        }
+        return bytes.toByteArray();
+      } catch (IOException ioe) {
+        throw new UncheckedIOException(ioe);
+      }
+    }
+
+    /*
+     * Select the coding with the highest q-value in an Accept-Encoding header,
+     * e.g. 'gzip, deflate;q=0.5'. Ties favor gzip, '*' covers codings that are
+     * not listed, and a q-value of 0 is a refusal.
+     */
+    static Encoding negotiate(String acceptEncoding) {
+      if (acceptEncoding == null) {
+        return IDENTITY;
+      }
+      Map<Encoding, Double> qValues = new EnumMap<>(Encoding.class);
+      double wildcard = 0.0;
+      for (String coding : Splitter.on(',').trimResults().omitEmptyStrings()
+          .split(acceptEncoding)) {
+        var parts = Splitter.on(';').trimResults().splitToList(coding);
+        String name = parts.get(0);
+        double q = (parts.size() > 1) ? qValue(parts.get(1)) : 1.0;
+        if (name.equals("*")) {
+          wildcard = q;
+        } else if (name.equalsIgnoreCase(GZIP.label)) {
+          qValues.put(GZIP, q);
+        } else if (name.equalsIgnoreCase(DEFLATE.label)) {
+          qValues.put(DEFLATE, q);
+        }
+      }
+      Encoding selected = IDENTITY;
+      double selectedQ = 0.0;
+      for (Encoding encoding : new Encoding[] { GZIP, DEFLATE }) {
+        double q = qValues.getOrDefault(encoding, wildcard);
+        if (q > selectedQ) {
+          selected = encoding;
+          selectedQ = q;
+        }
+      }
+      return selected;
+    }
+
+    private static double qValue(String param) {
+      if (!param.startsWith("q=")) {
+        return 1.0;
+      }
+      try {
+        return Double.parseDouble(param.substring(2));
+      } catch (NumberFormatException nfe) {
+        return 0.0;
+      }
+    }
+  }
+
+  private static final class Entry {
+
+    final byte[] body;
+    final Map<Encoding, byte[]> encoded;
+    final String hash;
+    final Instant created;
+    final String lastModified;
+
+    Entry(String json) {
+      body = json.getBytes(UTF_8);
+      encoded = new EnumMap<>(Encoding.class);
+      if (body.length >= COMPRESSION_THRESHOLD) {
+        encoded.put(Encoding.GZIP, Encoding.GZIP.encode(body));
+        encoded.put(Encoding.DEFLATE, Encoding.DEFLATE.encode(body));
+      }
+      hash = Hashing.sha256().hashBytes(body).toString();
+      created = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+      lastModified = DateTimeFormatter.RFC_1123_DATE_TIME.format(
+          ZonedDateTime.ofInstant(created, ZoneOffset.UTC));
+    }
+
+    byte[] body(Encoding encoding) {
+      return encoded.getOrDefault(encoding, body);
+    }
+
+    String etag(Encoding encoding) {
+      return (encoding == Encoding.IDENTITY)
+          ? '"' + hash + '"'
+          : '"' + hash + "-" + encoding + '"';
+    }
+
+    int size() {
+      int size = body.length;
+      for (byte[] bytes : encoded.values()) {
+        size += bytes.length;
+      }
+      return size;
+    }
+
+    /*
+     * If-None-Match takes precedence over If-Modified-Since (RFC 7232 §6).
+     */
+    boolean notModified(HttpRequest<?> request, String etag) {
+      var headers = request.getHeaders();
+      String ifNoneMatch = headers.get(HttpHeaders.IF_NONE_MATCH);
+      if (ifNoneMatch != null) {
+        return matches(ifNoneMatch, etag);
+      }
+      String ifModifiedSince = headers.get(HttpHeaders.IF_MODIFIED_SINCE);
+      if (ifModifiedSince != null) {
+        try {
+          Instant since = ZonedDateTime.parse(
+              ifModifiedSince,
+              DateTimeFormatter.RFC_1123_DATE_TIME).toInstant();
+          return !created.isAfter(since);
+        } catch (DateTimeParseException e) {
+          return false;
+        }
+      }
+      return false;
+    }
+
+    private static boolean matches(String ifNoneMatch, String etag) {
+      for (String tag : Splitter.on(',').trimResults().split(ifNoneMatch)) {
+        if (tag.equals("*") || tag.equals(etag) || tag.equals("W/" + etag)) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+}
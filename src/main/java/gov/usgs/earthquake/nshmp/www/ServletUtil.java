@@ -2,6 +2,7 @@ package gov.usgs.earthquake.nshmp.www;
 
 import static java.lang.Runtime.getRuntime;
 
+import java.io.IOException;
 import java.lang.reflect.Type;
 import java.net.URI;
 import java.net.URL;
@@ -11,33 +12,55 @@ import java.nio.file.FileSystems;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
 
 import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import com.google.common.base.Splitter;
 import com.google.common.base.Stopwatch;
+import com.google.common.base.Throwables;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
 import com.google.common.util.concurrent.ListeningExecutorService;
 import com.google.common.util.concurrent.MoreExecutors;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
 import com.google.gson.JsonPrimitive;
 import com.google.gson.JsonSerializationContext;
 import com.google.gson.JsonSerializer;
 
+import gov.usgs.earthquake.nshmp.ResultStore;
 import gov.usgs.earthquake.nshmp.calc.Site;
 import gov.usgs.earthquake.nshmp.calc.ValueFormat;
 import gov.usgs.earthquake.nshmp.geo.Location;
 import gov.usgs.earthquake.nshmp.gmm.Imt;
 import gov.usgs.earthquake.nshmp.model.HazardModel;
 import gov.usgs.earthquake.nshmp.model.SiteData;
+import gov.usgs.earthquake.nshmp.site.SiteDataCache;
 import gov.usgs.earthquake.nshmp.www.meta.MetaUtil;
 
 import io.micronaut.context.annotation.Value;
 import io.micronaut.context.event.ShutdownEvent;
 import io.micronaut.context.event.StartupEvent;
+import io.micronaut.http.HttpHeaders;
+import io.micronaut.http.HttpRequest;
 import io.micronaut.http.HttpResponse;
+import io.micronaut.http.HttpStatus;
+import io.micronaut.http.context.ServerRequestContext;
 import io.micronaut.runtime.event.annotation.EventListener;
 import jakarta.inject.Singleton;
 
@@ -58,15 +81,64 @@ public class ServletUtil {
 
   public static final int THREAD_COUNT;
 
+  /** Query parameter used to select a model other than the default. */
+  public static final String MODEL_KEY = "model";
+
+  /* Seconds a client should wait before retrying while a model loads. */
+  private static final String RETRY_AFTER = "10";
+
   @Value("${nshmp-haz.model-path}")
   private Path modelPath;
 
-  private static HazardModel HAZARD_MODEL;
+  @Value("${nshmp-haz.models:}")
+  private String models;
+
+  @Value("${nshmp-haz.preload-models:false}")
+  private boolean preloadModels;
+
+  @Value("${nshmp-haz.warmup-sites:0}")
+  private int warmupSites;
+
+  @Value("${nshmp-haz.model-cache}")
+  private Path modelCache;
+
+  @Value("${nshmp-haz.result-store:}")
+  private String resultStore;
+
+  @Value("${nshmp-haz.result-store-size:1024}")
+  private long resultStoreSize;
+
+  @Value("${nshmp-haz.site-data-resolution:0.0001}")
+  private double siteDataResolution;
+
+  /* Extraction directory for models embedded in a JAR file. */
+  private static Path MODEL_CACHE;
+
+  private static ModelRegistry MODELS;
+  private static CompletableFuture<Void> MODELS_LOADED;
+
+  /* Persistent store of calculation results; null if not configured. */
+  private static ResultStore RESULT_STORE;
+
+  /* Site data lookups, per model, snapped to SITE_DATA_RESOLUTION. */
+  private static double SITE_DATA_RESOLUTION = 0.0001;
+  private static final long SITE_DATA_MAX_SIZE = 100000;
+  private static final LoadingCache<SiteData, SiteDataCache> SITE_DATA = CacheBuilder.newBuilder()
+      .weakKeys()
+      .build(CacheLoader.from(siteData -> SiteDataCache.create(
+          siteData, SITE_DATA_RESOLUTION, SITE_DATA_MAX_SIZE)));
 
   static {
     THREAD_COUNT = getRuntime().availableProcessors();
-    CALC_EXECUTOR = MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(THREAD_COUNT));
-    TASK_EXECUTOR = Executors.newSingleThreadExecutor();
+    ThreadPoolExecutor calcPool = (ThreadPoolExecutor) Executors.newFixedThreadPool(THREAD_COUNT);
+    ThreadPoolExecutor taskPool = (ThreadPoolExecutor) Executors.newFixedThreadPool(1);
+    Metrics.executor("calc", calcPool);
+    Metrics.executor("task", taskPool);
+    Metrics.cache("site-data", () -> SITE_DATA.asMap().values().stream()
+        .map(SiteDataCache::stats)
+        .reduce(new CacheStats(0, 0, 0, 0, 0, 0), CacheStats::plus));
+    CALC_EXECUTOR = MoreExecutors.listeningDecorator(calcPool);
+    TASK_EXECUTOR = taskPool;
     GSON = new GsonBuilder()
         .registerTypeAdapter(Imt.class, new WsUtils.EnumSerializer<Imt>())
         .registerTypeAdapter(ValueFormat.class, new WsUtils.EnumSerializer<ValueFormat>())
@@ -90,8 +162,40 @@ public class ServletUtil {
 
   }
 
+  /**
+   * Return the model for the current request. This is the model identified by
+   * the {@code model} query parameter, if present, or the default model.
+   *
+   * <p>The request is only bound to the thread handling it, so this method
+   * must be called on that thread; calculations run on other threads should be
+   * passed the model instead.
+   *
+   * @throws IllegalStateException if no request is bound to the current thread
+   * @throws IllegalArgumentException if the requested model is not registered
+   * @throws ModelRegistry.ModelLoadingException if the model is loading
+   */
   public static HazardModel model() {
-    return HAZARD_MODEL;
+    HttpRequest<?> request = ServerRequestContext.currentRequest()
+        .orElseThrow(() -> new IllegalStateException(
+            "No current request; resolve the model on the request thread"));
+    String key = request.getParameters().getFirst(MODEL_KEY)
+        .orElse(MODELS.defaultKey());
+    return MODELS.get(key);
+  }
+
+  /** The registry of models served by this instance. */
+  public static ModelRegistry models() {
+    return MODELS;
+  }
+
+  /**
+   * Whether the models loaded at startup are ready for use. Requests received
+   * before this time for a model that is loading receive
+   * {@code 503 Service Unavailable}.
+   */
+  public static boolean ready() {
+    var loaded = MODELS_LOADED;
+    return loaded != null && loaded.isDone() && !loaded.isCompletedExceptionally();
   }
 
   @EventListener
@@ -102,10 +206,52 @@ public class ServletUtil {
 
   @EventListener
   void startup(StartupEvent event) {
-    HAZARD_MODEL = loadModel(modelPath);
+    /*
+     * The model at 'model-path' is the default and is loaded at startup;
+     * additional models are loaded when first requested unless preloading is
+     * enabled. Startup models are loaded in parallel in the background so the
+     * server accepts requests, and can report readiness, while loading. If
+     * enabled, warmup calculations with the default model also complete
+     * before the service reports ready.
+     */
+    MODEL_CACHE = modelCache;
+    SITE_DATA_RESOLUTION = siteDataResolution;
+    if (resultStore != null && !resultStore.isBlank()) {
+      try {
+        RESULT_STORE = ResultStore.open(Paths.get(resultStore), resultStoreSize * 1024 * 1024);
+      } catch (IOException e) {
+        LoggerFactory.getLogger(ServletUtil.class).warn("Result store unavailable", e);
+      }
+    }
+    String defaultKey = modelPath.getFileName().toString();
+    Map<String, Path> paths = new LinkedHashMap<>();
+    paths.put(defaultKey, modelPath);
+    if (models != null) {
+      Splitter.on(',')
+          .trimResults()
+          .omitEmptyStrings()
+          .withKeyValueSeparator('=')
+          .split(models)
+          .forEach((key, path) -> paths.put(key, Paths.get(path)));
+    }
+    MODELS = new ModelRegistry(defaultKey, paths, ServletUtil::loadModel);
+    MODELS_LOADED = MODELS.preload(
+        preloadModels ? List.copyOf(paths.keySet()) : List.of(defaultKey));
+    if (warmupSites > 0) {
+      MODELS_LOADED = MODELS_LOADED.thenRun(() -> warmup(defaultKey, warmupSites));
+    }
   }
 
-  private HazardModel loadModel(Path path) {
+  /* Warmup failures are logged but do not prevent the service from starting. */
+  private static void warmup(String key, int siteCount) {
+    try {
+      ModelWarmup.run(MODELS.get(key), siteCount);
+    } catch (RuntimeException e) {
+      LoggerFactory.getLogger(ServletUtil.class).warn("Model warmup failed", e);
+    }
+  }
+
+  private static HazardModel loadModel(Path path) {
     URL url;
     URI uri;
     String uriString;
@@ -120,13 +266,27 @@ public class ServletUtil {
       /*
        * When the web sevice is deployed inside a JAR file (and not unpacked by
        * the servlet container) model resources will not exist on disk as
-       * otherwise expected. In this case, load the resources directly out of
-       * the JAR file as well. This is slower, but with the preload option
-       * enabled it may be less of an issue if the models are already in memory.
+       * otherwise expected. In this case, extract the model once to a local
+       * cache directory keyed by a hash of its JAR entries. Should extraction
+       * fail, fall back to loading the resources directly out of the JAR file,
+       * which is slower.
        */
 
       if (uriString.indexOf("!") != -1) {
         uriParts = uri.toString().split("!");
+        String modelDir = uriParts[1].replaceAll("%20", " ");
+
+        Path extracted = null;
+        try {
+          Path jar = Paths.get(URI.create(uriParts[0].replaceFirst("^jar:", "")));
+          extracted = JarModelCache.extract(jar, modelDir, MODEL_CACHE);
+        } catch (Exception e) {
+          LoggerFactory.getLogger(ServletUtil.class)
+              .warn("Model extraction failed; reading model from JAR", e);
+        }
+        if (extracted != null) {
+          return HazardModel.load(extracted);
+        }
 
         try {
           fs = FileSystems.getFileSystem(
@@ -137,7 +297,7 @@ public class ServletUtil {
               new HashMap<String, String>());
         }
 
-        path = fs.getPath(uriParts[1].replaceAll("%20", " "));
+        path = fs.getPath(modelDir);
       } else {
         path = Paths.get(uri);
       }
@@ -163,6 +323,11 @@ public class ServletUtil {
       Throwable e,
       String name,
       String url) {
+    if (isLoading(e)) {
+      return HttpResponse.<String> status(HttpStatus.SERVICE_UNAVAILABLE)
+          .header(HttpHeaders.RETRY_AFTER, RETRY_AFTER)
+          .body(e.getMessage());
+    }
     var msg = e.getMessage() + " (see logs)";
     var svcResponse = ResponseBody.error()
         .name(name)
@@ -176,6 +341,78 @@ public class ServletUtil {
     return HttpResponse.serverError(response);
   }
 
+  /* Model loading errors may be wrapped by caches and executors. */
+  private static boolean isLoading(Throwable e) {
+    return Throwables.getCausalChain(e).stream()
+        .anyMatch(ModelRegistry.ModelLoadingException.class::isInstance);
+  }
+
+  /** A calculation with a model that produces a service response. */
+  @FunctionalInterface
+  public interface Calculation {
+    Object calc(HazardModel model) throws InterruptedException, ExecutionException;
+  }
+
+  /**
+   * Return a calculation response from the result store, if configured and the
+   * response for an identical calculation at the same site is present;
+   * otherwise perform the calculation and store its response. Result store
+   * errors are logged and the calculation is performed.
+   *
+   * <p>Responses must have a {@code metadata} object. Its {@code server}
+   * member, which records the timing of a particular request, is not stored;
+   * it is rebuilt from the supplied timer when a stored response is returned.
+   *
+   * @param location of the site
+   * @param vs30 of the site
+   * @param variant a description of the service and any request parameters
+   *        other than the site that affect the response
+   * @param timer of the current request
+   * @param calculation that produces the response with the model of the
+   *        current request, resolved on the request thread
+   * @return the response, or its stored JSON representation
+   */
+  public static Object storedResponse(
+      Location location,
+      double vs30,
+      String variant,
+      Stopwatch timer,
+      Calculation calculation) throws InterruptedException, ExecutionException {
+
+    HazardModel model = model();
+    ResultStore store = RESULT_STORE;
+    if (store == null) {
+      return calculation.calc(model);
+    }
+    Site site = createSite(location, vs30, model.siteData());
+    String key = ResultStore.key(
+        model.name(), MODELS.fingerprint(model), model.config(), site, variant);
+    Logger log = LoggerFactory.getLogger(ServletUtil.class);
+    try {
+      Optional<String> stored = store.get(key);
+      if (stored.isPresent()) {
+        JsonObject response = JsonParser.parseString(stored.get()).getAsJsonObject();
+        JsonObject metadata = new JsonObject();
+        metadata.add("server", GSON2.toJsonTree(serverData(THREAD_COUNT, timer)));
+        response.getAsJsonObject("metadata").entrySet()
+            .forEach(entry -> metadata.add(entry.getKey(), entry.getValue()));
+        response.add("metadata", metadata);
+        return response;
+      }
+    } catch (IOException | RuntimeException e) {
+      log.warn("Result store read failed: " + key, e);
+    }
+    Object response = calculation.calc(model);
+    try {
+      JsonObject json = GSON2.toJsonTree(response).getAsJsonObject();
+      json.getAsJsonObject("metadata").remove("server");
+      store.put(key, GSON2.toJson(json));
+    } catch (IOException | RuntimeException e) {
+      log.warn("Result store write failed: " + key, e);
+    }
+    return response;
+  }
+
   public static String imtShortLabel(Imt imt) {
     if (imt.equals(Imt.PGA) || imt.equals(Imt.PGV)) {
       return imt.name();
@@ -189,11 +426,19 @@ public class ServletUtil {
     return new Server(threads, timer);
   }
 
+  /**
+   * Create a site. Basin terms are looked up in a cache of site data shared by
+   * all requests to the same model; see {@link SiteDataCache}.
+   *
+   * @param location of the site
+   * @param vs30 of the site
+   * @param siteData the model site data
+   */
   public static Site createSite(Location location, double vs30, SiteData siteData) {
     Site.Builder builder = Site.builder()
         .location(location)
         .vs30(vs30);
-    SiteData.Values sdValues = siteData.get(location);
+    SiteData.Values sdValues = SITE_DATA.getUnchecked(siteData).get(location);
     sdValues.z1p0.ifPresent(builder::z1p0);
     sdValues.z2p5.ifPresent(builder::z2p5);
     return builder.build();
@@ -0,0 +1,130 @@
+package gov.usgs.earthquake.nshmp.www;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import gov.usgs.earthquake.nshmp.SiteBundle;
+
+import io.micronaut.context.annotation.Value;
+import io.micronaut.context.event.ShutdownEvent;
+import io.micronaut.http.HttpRequest;
+import io.micronaut.http.HttpResponse;
+import io.micronaut.http.MediaType;
+import io.micronaut.http.annotation.Controller;
+import io.micronaut.http.annotation.Get;
+import io.micronaut.http.annotation.PathVariable;
+import io.micronaut.runtime.event.annotation.EventListener;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.tags.Tag;
+
+/**
+ * Micronaut web service controller for precomputed hazard at NSHMP reference
+ * sites. Results are read from a site bundle created with {@link SiteBundle}
+ * and are returned as stored, without loading a model.
+ *
+ * <p>See src/main/resources/application.yml nshmp-haz.site-bundle for the path
+ * to the bundle. If no bundle is configured, all requests return
+ * {@code 404 Not Found}.
+ *
+ * @author U.S. Geological Survey
+ */
+@Tag(
+    name = SiteBundleController.NAME,
+    description = "USGS NSHM precomputed hazard at reference sites")
+@Controller("/reference")
+public class SiteBundleController {
+
+  static final String NAME = "Reference Sites";
+  static final Logger LOG = LoggerFactory.getLogger(SiteBundleController.class);
+
+  @Value("${nshmp-haz.site-bundle:}")
+  private String bundlePath;
+
+  /*
+   * Opened on first request; null if no bundle is configured. Guarded by this
+   * controller.
+   */
+  private SiteBundle bundle;
+  private boolean opened;
+
+  @Operation(
+      summary = "List the contents of the site bundle",
+      description = "Returns the model, Vs30s, return periods, and site ids in the bundle",
+      operationId = "reference-metadata")
+  @Get(produces = MediaType.APPLICATION_JSON)
+  public HttpResponse<String> doGetMetadata(HttpRequest<?> http) {
+    try {
+      SiteBundle siteBundle = bundle();
+      return (siteBundle == null)
+          ? HttpResponse.notFound()
+          : HttpResponse.ok(siteBundle.header());
+    } catch (Exception e) {
+      return ServletUtil.error(LOG, e, NAME, http.getUri().toString());
+    }
+  }
+
+  /**
+   * @param group the site group: nshmp, nureg, or cybershake
+   * @param site the site id, e.g. LOS_ANGELES_CA
+   * @param vs30 one of the site class Vs30s of the bundle model
+   */
+  @Operation(
+      summary = "Precomputed hazard and disaggregation at a reference site",
+      description = "Returns hazard curves and disaggregations at 475, 975, and 2475 years",
+      operationId = "reference-site")
+  @Get(uri = "/{group}/{site}/{vs30}", produces = MediaType.APPLICATION_JSON)
+  public HttpResponse<String> doGetSite(
+      HttpRequest<?> http,
+      @PathVariable String group,
+      @PathVariable String site,
+      @Schema(
+          minimum = "150",
+          maximum = "3000") @PathVariable int vs30) {
+    try {
+      SiteBundle siteBundle = bundle();
+      if (siteBundle == null) {
+        return HttpResponse.notFound();
+      }
+      return siteBundle.get(group + "/" + site, vs30)
+          .map(HttpResponse::ok)
+          .orElseGet(HttpResponse::notFound);
+    } catch (Exception e) {
+      return ServletUtil.error(LOG, e, NAME, http.getUri().toString());
+    }
+  }
+
+  /* A bundle that was never requested is not opened at shutdown. */
+  @EventListener
+  synchronized void shutdown(ShutdownEvent event) throws IOException {
+    opened = true;
+    if (bundle != null) {
+      bundle.close();
+    }
+  }
+
+  private synchronized SiteBundle bundle() {
+    if (!opened) {
+      bundle = open();
+      opened = true;
+    }
+    return bundle;
+  }
+
+  private SiteBundle open() {
+    if (bundlePath == null || bundlePath.isBlank()) {
+      return null;
+    }
+    try {
+      SiteBundle siteBundle = SiteBundle.open(Paths.get(bundlePath));
+      LOG.info("Site bundle: {} [{} results]", bundlePath, siteBundle.keys().size());
+      return siteBundle;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
@@ -93,12 +93,17 @@ public final class DisaggService {
   static HttpResponse<String> getDisaggIml(RequestIml request)
       throws InterruptedException, ExecutionException {
     var stopwatch = Stopwatch.createStarted();
-    var disagg = calcDisaggIml(request);
-    var response = new Response.Builder()
-        .timer(stopwatch)
-        .request(request)
-        .disagg(disagg)
-        .build();
+    var variant = String.format("disagg-iml:%s:%s", request.imls, request.dataTypes);
+    var response = ServletUtil.storedResponse(
+        Location.create(request.longitude, request.latitude),
+        request.vs30,
+        variant,
+        stopwatch,
+        model -> new Response.Builder()
+            .timer(stopwatch)
+            .request(request)
+            .disagg(calcDisaggIml(model, request))
+            .build());
     var body = ResponseBody.success()
         .name(NAME)
         .url(request.http.getUri().toString())
@@ -113,12 +118,18 @@ public final class DisaggService {
   static HttpResponse<String> getDisaggRp(RequestRp request)
       throws InterruptedException, ExecutionException {
     var stopwatch = Stopwatch.createStarted();
-    var disagg = calcDisaggRp(request);
-    var response = new Response.Builder()
-        .timer(stopwatch)
-        .request(request)
-        .disagg(disagg)
-        .build();
+    var variant = String.format(
+        "disagg-rp:%s:%s:%s", request.returnPeriod, request.imts, request.dataTypes);
+    var response = ServletUtil.storedResponse(
+        Location.create(request.longitude, request.latitude),
+        request.vs30,
+        variant,
+        stopwatch,
+        model -> new Response.Builder()
+            .timer(stopwatch)
+            .request(request)
+            .disagg(calcDisaggRp(model, request))
+            .build());
     var body = ResponseBody.success()
         .name(NAME)
         .url(request.http.getUri().toString())
@@ -137,9 +148,8 @@ public final class DisaggService {
    * we don't know the imls so must compute hazard over the full curve
    */
 
-  private static Disaggregation calcDisaggIml(RequestIml request)
+  private static Disaggregation calcDisaggIml(HazardModel model, RequestIml request)
       throws InterruptedException, ExecutionException {
-    HazardModel model = ServletUtil.model();
 
     // modify config to include service endpoint arguments
     CalcConfig config = CalcConfig.copyOf(model.config())
@@ -169,11 +179,9 @@ public final class DisaggService {
     return disagg;
   }
 
-  private static Disaggregation calcDisaggRp(RequestRp request)
+  private static Disaggregation calcDisaggRp(HazardModel model, RequestRp request)
       throws InterruptedException, ExecutionException {
 
-    HazardModel model = ServletUtil.model();
-
     // modify config to include service endpoint arguments
     CalcConfig config = CalcConfig.copyOf(model.config())
         .imts(request.imts)
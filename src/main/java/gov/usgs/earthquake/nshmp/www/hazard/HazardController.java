@@ -56,7 +56,7 @@ public class HazardController {
       content = @Content(
           schema = @Schema(implementation = MetadataResponse.class)))
   @Get(produces = MediaType.APPLICATION_JSON)
-  public HttpResponse<String> doGetMetadata(HttpRequest<?> http) {
+  public HttpResponse<?> doGetMetadata(HttpRequest<?> http) {
     try {
       return HazardService.getMetadata(http);
     } catch (Exception e) {
@@ -34,6 +34,7 @@ import gov.usgs.earthquake.nshmp.model.HazardModel;
 import gov.usgs.earthquake.nshmp.model.SourceType;
 import gov.usgs.earthquake.nshmp.www.HazVersion;
 import gov.usgs.earthquake.nshmp.www.ResponseBody;
+import gov.usgs.earthquake.nshmp.www.ResponseCache;
 import gov.usgs.earthquake.nshmp.www.ResponseMetadata;
 import gov.usgs.earthquake.nshmp.www.ServletUtil;
 import gov.usgs.earthquake.nshmp.www.ServletUtil.Server;
@@ -59,29 +60,36 @@ public final class HazardService {
 
   private static final String TOTAL_KEY = "Total";
 
-  public static HttpResponse<String> getMetadata(HttpRequest<?> request) {
-    var url = request.getUri().toString();
-    var usage = new Metadata(ServletUtil.model());
-    var body = ResponseBody.usage()
-        .name(NAME)
-        .url(url)
-        .metadata(new ResponseMetadata(HazVersion.appVersions()))
-        .request(url)
-        .response(usage)
-        .build();
-    var json = ServletUtil.GSON2.toJson(body);
-    return HttpResponse.ok(json);
+  public static HttpResponse<?> getMetadata(HttpRequest<?> request)
+      throws ExecutionException {
+    return ResponseCache.get(request, url -> {
+      var usage = new Metadata(ServletUtil.model());
+      var body = ResponseBody.usage()
+          .name(NAME)
+          .url(url)
+          .metadata(new ResponseMetadata(HazVersion.appVersions()))
+          .request(url)
+          .response(usage)
+          .build();
+      return ServletUtil.GSON2.toJson(body);
+    });
   }
 
   public static HttpResponse<String> getHazard(Request request)
       throws InterruptedException, ExecutionException {
     var stopwatch = Stopwatch.createStarted();
-    var hazard = calcHazard(request);
-    var response = new Response.Builder()
-        .timer(stopwatch)
-        .request(request)
-        .hazard(hazard)
-        .build();
+    var variant = String.format(
+        "hazard:%s:%s:%s", request.imts, request.truncate, request.maxdir);
+    var response = ServletUtil.storedResponse(
+        Location.create(request.longitude, request.latitude),
+        request.vs30,
+        variant,
+        stopwatch,
+        model -> new Response.Builder()
+            .timer(stopwatch)
+            .request(request)
+            .hazard(calcHazard(model, request))
+            .build());
     var body = ResponseBody.success()
         .name(NAME)
         .url(request.http.getUri().toString())
@@ -102,11 +110,9 @@ public final class HazardService {
    * apply truncation and scaling on the client.
    */
 
-  static Hazard calcHazard(Request request)
+  static Hazard calcHazard(HazardModel model, Request request)
       throws InterruptedException, ExecutionException {
 
-    HazardModel model = ServletUtil.model();
-
     // modify config to include service endpoint arguments
     CalcConfig config = CalcConfig.copyOf(model.config())
         .imts(request.imts)
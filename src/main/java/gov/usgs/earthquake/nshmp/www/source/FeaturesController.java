@@ -50,7 +50,7 @@ public class FeaturesController {
           schema = @Schema(
               implementation = MetadataResponse.class)))
   @Get
-  public HttpResponse<String> doGetMetadata(HttpRequest<?> http) {
+  public HttpResponse<?> doGetMetadata(HttpRequest<?> http) {
     try {
       return FeaturesService.getMetadata(http);
     } catch (Exception e) {
@@ -74,7 +74,7 @@ public class FeaturesController {
       content = @Content(
           schema = @Schema(implementation = TreeResponse.class)))
   @Get(uri = "/{id}")
-  public HttpResponse<String> doGetTree(HttpRequest<?> http, @PathVariable int id) {
+  public HttpResponse<?> doGetTree(HttpRequest<?> http, @PathVariable int id) {
     try {
       return FeaturesService.getTree(http, id);
     } catch (Exception e) {
@@ -1,5 +1,7 @@
 package gov.usgs.earthquake.nshmp.www.source;
 
+import java.util.concurrent.ExecutionException;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -7,6 +9,7 @@ import gov.usgs.earthquake.nshmp.model.HazardModel;
 import gov.usgs.earthquake.nshmp.model.Models;
 import gov.usgs.earthquake.nshmp.www.HazVersion;
 import gov.usgs.earthquake.nshmp.www.ResponseBody;
+import gov.usgs.earthquake.nshmp.www.ResponseCache;
 import gov.usgs.earthquake.nshmp.www.ResponseMetadata;
 import gov.usgs.earthquake.nshmp.www.ServletUtil;
 import gov.usgs.earthquake.nshmp.www.source.SourceService.SourceModel;
@@ -26,31 +29,35 @@ public class FeaturesService {
   static final String NAME = "Model Features";
   static final Logger LOG = LoggerFactory.getLogger(FeaturesService.class);
 
-  public static HttpResponse<String> getMetadata(HttpRequest<?> request) {
-    var url = request.getUri().toString();
-    var metadata = new Metadata(ServletUtil.model());
-    var response = ResponseBody.usage()
-        .name(NAME)
-        .url(url)
-        .metadata(new ResponseMetadata(HazVersion.appVersions()))
-        .request(url)
-        .response(metadata)
-        .build();
-    return HttpResponse.ok(ServletUtil.GSON2.toJson(response));
+  public static HttpResponse<?> getMetadata(HttpRequest<?> request)
+      throws ExecutionException {
+    return ResponseCache.get(request, url -> {
+      var metadata = new Metadata(ServletUtil.model());
+      var response = ResponseBody.usage()
+          .name(NAME)
+          .url(url)
+          .metadata(new ResponseMetadata(HazVersion.appVersions()))
+          .request(url)
+          .response(metadata)
+          .build();
+      return ServletUtil.GSON2.toJson(response);
+    });
   }
 
-  public static HttpResponse<String> getTree(HttpRequest<?> request, Integer id) {
-    var url = request.getUri().toString();
-    var features = Models.features(ServletUtil.model(), id);
-    var requestData = new RequestData(id);
-    var response = ResponseBody.success()
-        .name(NAME)
-        .url(url)
-        .metadata(new ResponseMetadata(HazVersion.appVersions()))
-        .request(requestData)
-        .response(features)
-        .build();
-    return HttpResponse.ok(ServletUtil.GSON2.toJson(response));
+  public static HttpResponse<?> getTree(HttpRequest<?> request, Integer id)
+      throws ExecutionException {
+    return ResponseCache.get(request, url -> {
+      var features = Models.features(ServletUtil.model(), id);
+      var requestData = new RequestData(id);
+      var response = ResponseBody.success()
+          .name(NAME)
+          .url(url)
+          .metadata(new ResponseMetadata(HazVersion.appVersions()))
+          .request(requestData)
+          .response(features)
+          .build();
+      return ServletUtil.GSON2.toJson(response);
+    });
   }
 
   static class RequestData {
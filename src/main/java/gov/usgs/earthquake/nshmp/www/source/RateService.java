@@ -6,6 +6,7 @@ import static gov.usgs.earthquake.nshmp.geo.Coordinates.checkLongitude;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 import java.util.OptionalDouble;
 import java.util.concurrent.ExecutionException;
 import java.util.stream.Collectors;
@@ -14,15 +15,22 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Stopwatch;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
 import com.google.common.collect.Range;
-import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 
+import gov.usgs.earthquake.nshmp.Maths;
 import gov.usgs.earthquake.nshmp.calc.CalcConfig;
 import gov.usgs.earthquake.nshmp.calc.EqRate;
 import gov.usgs.earthquake.nshmp.calc.Site;
 import gov.usgs.earthquake.nshmp.geo.Location;
 import gov.usgs.earthquake.nshmp.model.HazardModel;
 import gov.usgs.earthquake.nshmp.www.HazVersion;
+import gov.usgs.earthquake.nshmp.www.Metrics;
 import gov.usgs.earthquake.nshmp.www.ResponseBody;
 import gov.usgs.earthquake.nshmp.www.ResponseMetadata;
 import gov.usgs.earthquake.nshmp.www.ServletUtil;
@@ -54,11 +62,42 @@ public final class RateService {
    * request queue; see HazardService. However, jobs are placed on a thread in
    * the CALC_EXECUTOR thread pool to handle parallel calculation of CEUS and
    * WUS models.
+   *
+   * Incremental annual rates do not depend on timespan, so rates are cached by
+   * snapped location and cutoff distance and probabilities for any timespan are
+   * derived from the cached rates. Request locations are snapped to the same
+   * precision used when serializing sites (see MetaUtil.SiteSerializer) and the
+   * snapped location is echoed in the response.
+   *
+   * Rate caches are held per model and compared by model identity, so
+   * reloading a model (see ModelRegistry) starts with an empty cache.
+   *
+   * There is no spatial index of sources here. EqRate (nshmp-lib) filters
+   * sources by distance internally and has no entry point that accepts a
+   * precomputed candidate set, and a HazardModel cannot be narrowed to a subset
+   * of its sources outside the library, so an index built in this service
+   * would have nothing to feed. Repeat requests are served from the rate cache
+   * instead; a cache miss still scans all sources within the cutoff distance.
    */
 
   private static final String TOTAL_KEY = "Total";
 
-  public static HttpResponse<String> getRate(Request request) {
+  private static final int LOCATION_SCALE = 3;
+  private static final int RATE_CACHE_SIZE = 1000;
+
+  /* Per-model caches, released with the model when it is evicted. */
+  private static final Cache<HazardModel, ModelCache> MODEL_CACHES = CacheBuilder.newBuilder()
+      .weakKeys()
+      .build();
+
+  static {
+    Metrics.cache("rate", () -> MODEL_CACHES.asMap().values().stream()
+        .map(cache -> cache.rates.stats())
+        .reduce(new CacheStats(0, 0, 0, 0, 0, 0), CacheStats::plus));
+  }
+
+  public static HttpResponse<String> getRate(Request request)
+      throws ExecutionException {
     var stopwatch = Stopwatch.createStarted();
     var rates = calcRate(request);
     var response = new Response.Builder()
@@ -77,7 +116,8 @@ public final class RateService {
     return HttpResponse.ok(json);
   }
 
-  public static HttpResponse<String> getProbability(ProbRequest request) {
+  public static HttpResponse<String> getProbability(ProbRequest request)
+      throws ExecutionException {
     var stopwatch = Stopwatch.createStarted();
     var rates = calcProbability(request);
     var response = new Response.Builder()
@@ -96,18 +136,18 @@ public final class RateService {
     return HttpResponse.ok(json);
   }
 
-  private static EqRate calcRate(Request request) {
+  private static EqRate calcRate(Request request) throws ExecutionException {
     return calc(request, OptionalDouble.empty());
   }
 
-  private static EqRate calcProbability(ProbRequest request) {
+  private static EqRate calcProbability(ProbRequest request) throws ExecutionException {
     return calc(request, OptionalDouble.of(request.timespan));
   }
 
-  private static EqRate calc(Request request, OptionalDouble timespan) {
+  private static EqRate calc(Request request, OptionalDouble timespan)
+      throws ExecutionException {
     var location = Location.create(request.longitude, request.latitude);
-    var site = Site.builder().location(location).build();
-    var futureRates = new ArrayList<ListenableFuture<EqRate>>();
+    var rateList = new ArrayList<EqRate>();
 
     /*
      * Because we need to combine model results, intially calculate incremental
@@ -116,19 +156,10 @@ public final class RateService {
      */
 
     var model = ServletUtil.model();
-    var rate = process(model, site, request.distance, timespan);
-    futureRates.add(rate);
-
-    var rates = futureRates.stream()
-        .map((future) -> {
-          try {
-            return future.get();
-          } catch (InterruptedException | ExecutionException e) {
-            throw new RuntimeException(e);
-          }
-        }).collect(Collectors.toList())
-        .toArray(new EqRate[] {});
+    var rate = process(model, location, request.distance);
+    rateList.add(rate);
 
+    var rates = rateList.toArray(new EqRate[] {});
     var ratesCombined = EqRate.combine(rates);
 
     if (timespan.isPresent()) {
@@ -139,19 +170,70 @@ public final class RateService {
     return ratesCombined;
   }
 
-  private static ListenableFuture<EqRate> process(
+  /*
+   * Incremental annual rates at a location, computed on the CALC_EXECUTOR on
+   * a cache miss. Concurrent requests for the same key wait on a single
+   * calculation. Calculation errors are rethrown unwrapped.
+   */
+  private static EqRate process(
       HazardModel model,
-      Site site,
-      double distance,
-      OptionalDouble timespan) {
-    var configBuilder = CalcConfig.copyOf(model.config()).distance(distance);
-    if (timespan.isPresent()) {
-      /* Also sets value format to Poisson probability. */
-      configBuilder.timespan(timespan.getAsDouble());
+      Location location,
+      double distance) throws ExecutionException {
+    var cache = MODEL_CACHES.get(model, ModelCache::new);
+    var key = new RateKey(location, distance);
+    try {
+      return cache.rates.get(key, () -> {
+        var config = CalcConfig.copyOf(model.config()).distance(distance).build();
+        var site = Site.builder().location(location).build();
+        var task = EqRate.callable(model, config, site);
+        try {
+          return ServletUtil.CALC_EXECUTOR.submit(task).get();
+        } catch (ExecutionException e) {
+          Throwables.throwIfUnchecked(e.getCause());
+          throw (Exception) e.getCause();
+        }
+      });
+    } catch (ExecutionException | UncheckedExecutionException | ExecutionError e) {
+      Throwables.throwIfUnchecked(e.getCause());
+      throw new ExecutionException(e.getCause());
+    }
+  }
+
+  private static final class ModelCache {
+
+    final Cache<RateKey, EqRate> rates = CacheBuilder.newBuilder()
+        .maximumSize(RATE_CACHE_SIZE)
+        .recordStats()
+        .build();
+  }
+
+  private static final class RateKey {
+
+    final Location location;
+    final double distance;
+
+    RateKey(Location location, double distance) {
+      this.location = location;
+      this.distance = distance;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof RateKey)) {
+        return false;
+      }
+      RateKey that = (RateKey) obj;
+      return location.equals(that.location) &&
+          Double.compare(distance, that.distance) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(location, distance);
     }
-    var config = configBuilder.build();
-    var task = EqRate.callable(model, config, site);
-    return ServletUtil.CALC_EXECUTOR.submit(task);
   }
 
   static class Response {
@@ -294,8 +376,8 @@ public final class RateService {
         double latitude,
         double distance) {
       this.http = http;
-      this.longitude = checkLongitude(longitude);
-      this.latitude = checkLatitude(latitude);
+      this.longitude = Maths.round(checkLongitude(longitude), LOCATION_SCALE);
+      this.latitude = Maths.round(checkLatitude(latitude), LOCATION_SCALE);
       this.distance = checkInRange(DISTANCE_RANGE, "Distance cutoff", distance);
     }
 
@@ -50,7 +50,7 @@ public class SourceLogicTreesController {
           schema = @Schema(
               implementation = MetadataResponse.class)))
   @Get
-  public HttpResponse<String> doGetMetadata(HttpRequest<?> http) {
+  public HttpResponse<?> doGetMetadata(HttpRequest<?> http) {
     try {
       return SourceLogicTreesService.getMetadata(http);
     } catch (Exception e) {
@@ -74,7 +74,7 @@ public class SourceLogicTreesController {
       content = @Content(
           schema = @Schema(implementation = TreeResponse.class)))
   @Get(uri = "/{id}")
-  public HttpResponse<String> doGetTree(HttpRequest<?> http, @PathVariable int id) {
+  public HttpResponse<?> doGetTree(HttpRequest<?> http, @PathVariable int id) {
     try {
       return SourceLogicTreesService.getTree(http, id);
     } catch (Exception e) {
@@ -0,0 +1,124 @@
+package gov.usgs.earthquake.nshmp;
+
+import static java.nio.file.StandardCopyOption.COPY_ATTRIBUTES;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import gov.usgs.earthquake.nshmp.geo.Location;
+
+public class ResultStoreTests {
+
+  @Test
+  public final void geohashTest() {
+    assertEquals("ezs42", ResultStore.geohash(Location.create(-5.6, 42.6), 5));
+    assertEquals("u4pruydqqvj", ResultStore.geohash(Location.create(10.40744, 57.64911), 11));
+    assertEquals("00000", ResultStore.geohash(Location.create(-180.0, -90.0), 5));
+    assertEquals("zzzzz", ResultStore.geohash(Location.create(179.99999, 89.99999), 5));
+
+    /* Hashes are prefixes of more precise hashes. */
+    Location loc = Location.create(-118.25, 34.05);
+    String hash = ResultStore.geohash(loc, 12);
+    for (int precision = 1; precision < 12; precision++) {
+      assertEquals(hash.substring(0, precision), ResultStore.geohash(loc, precision));
+    }
+  }
+
+  @Test
+  public final void fingerprintTest(@TempDir Path dir) throws IOException {
+    Path model = Files.createDirectories(dir.resolve("model"));
+    Files.writeString(model.resolve("config.json"), "{}");
+    Files.createDirectories(model.resolve("fault"));
+    Files.writeString(model.resolve("fault/source.json"), "{\"id\": 1}");
+    String fingerprint = ResultStore.fingerprint(model);
+    assertEquals(fingerprint, ResultStore.fingerprint(model));
+
+    /* An identical copy of a model at another path has a different fingerprint. */
+    Path copy = Files.createDirectories(dir.resolve("copy/fault"));
+    for (String file : List.of("config.json", "fault/source.json")) {
+      Files.copy(model.resolve(file), dir.resolve("copy").resolve(file), COPY_ATTRIBUTES);
+    }
+    assertNotEquals(fingerprint, ResultStore.fingerprint(copy.getParent()));
+
+    /* Edited, added, and touched files change the fingerprint. */
+    Files.writeString(model.resolve("fault/source.json"), "{\"id\": 12}");
+    String edited = ResultStore.fingerprint(model);
+    assertNotEquals(fingerprint, edited);
+    Files.writeString(model.resolve("fault/other.json"), "{}");
+    String added = ResultStore.fingerprint(model);
+    assertNotEquals(edited, added);
+    Path config = model.resolve("config.json");
+    Files.setLastModifiedTime(config,
+        FileTime.fromMillis(Files.getLastModifiedTime(config).toMillis() - 10000));
+    assertNotEquals(added, ResultStore.fingerprint(model));
+  }
+
+  @Test
+  public final void getPutTest(@TempDir Path dir) throws IOException {
+    ResultStore store = ResultStore.open(dir, 1024 * 1024);
+    assertEquals(Optional.empty(), store.get("9q5ctr_760.0"));
+    assertEquals(0, store.size());
+
+    store.put("9q5ctr_760.0", "{\"value\": 1}");
+    assertEquals(Optional.of("{\"value\": 1}"), store.get("9q5ctr_760.0"));
+    assertTrue(store.size() > 0);
+
+    /* Replacing a result replaces its size. */
+    long size = store.size();
+    store.put("9q5ctr_760.0", "{\"value\": 2}");
+    assertEquals(Optional.of("{\"value\": 2}"), store.get("9q5ctr_760.0"));
+    assertEquals(size, store.size());
+
+    /* Results persist when a store is reopened. */
+    ResultStore reopened = ResultStore.open(dir, 1024 * 1024);
+    assertEquals(size, reopened.size());
+    assertEquals(Optional.of("{\"value\": 2}"), reopened.get("9q5ctr_760.0"));
+  }
+
+  @Test
+  public final void evictionTest(@TempDir Path dir) throws IOException {
+    /* Each result compresses to ~850 bytes; a third exceeds the store size. */
+    ResultStore store = ResultStore.open(dir, 2000);
+    Random random = new Random(0);
+    long now = System.currentTimeMillis();
+
+    store.put("aaa", json(random));
+    store.put("bbb", json(random));
+    setLastModified(dir, "aaa", now - 20000);
+    setLastModified(dir, "bbb", now - 10000);
+
+    /* Reading 'aaa' makes 'bbb' the least recently used. */
+    assertTrue(store.get("aaa").isPresent());
+    store.put("ccc", json(random));
+
+    assertEquals(Optional.empty(), store.get("bbb"));
+    assertTrue(store.get("aaa").isPresent());
+    assertTrue(store.get("ccc").isPresent());
+    assertTrue(store.size() <= 2000 * 0.9);
+  }
+
+  /* A JSON string of random hex digits, which compress poorly. */
+  private static String json(Random random) {
+    StringBuilder sb = new StringBuilder("\"");
+    for (int i = 0; i < 1500; i++) {
+      sb.append(Integer.toHexString(random.nextInt(16)));
+    }
+    return sb.append('"').toString();
+  }
+
+  private static void setLastModified(Path dir, String key, long millis) throws IOException {
+    Path file = dir.resolve(key.substring(0, 3)).resolve(key + ".json.gz");
+    Files.setLastModifiedTime(file, FileTime.fromMillis(millis));
+  }
+}
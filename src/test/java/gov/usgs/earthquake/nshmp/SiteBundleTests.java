@@ -0,0 +1,66 @@
+package gov.usgs.earthquake.nshmp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+public class SiteBundleTests {
+
+  /* PEER Set1-Case1 spans 36°-40° N, 124°-118° W and has one site class. */
+  private static final Path MODEL = Paths.get("etc/peer/models/Set1-Case1");
+
+  @Test
+  public final void roundTripTest(@TempDir Path dir) throws IOException {
+    Path out = dir.resolve("out");
+    Path config = dir.resolve("config.json");
+    Files.writeString(config, "{\"output\": {\"directory\": \"" + out + "\"}}");
+
+    Optional<String> status = SiteBundle.run(
+        new String[] { MODEL.toString(), config.toString() });
+    assertEquals(Optional.empty(), status);
+
+    try (SiteBundle bundle = SiteBundle.open(out.resolve(SiteBundle.FILENAME))) {
+      JsonObject header = JsonParser.parseString(bundle.header()).getAsJsonObject();
+      assertEquals("PEER Set1-Case1", header.get("model").getAsString());
+      assertEquals(760, header.getAsJsonArray("vs30s").get(0).getAsInt());
+      assertEquals(1, header.getAsJsonArray("vs30s").size());
+      assertEquals(SiteBundle.RETURN_PERIODS.size(), header.getAsJsonArray("returnPeriods").size());
+
+      List<String> keys = new ArrayList<>();
+      for (JsonElement site : header.getAsJsonArray("sites")) {
+        keys.add(SiteBundle.key(site.getAsString(), 760));
+      }
+      assertFalse(keys.isEmpty());
+      assertEquals(keys, bundle.keys());
+
+      String id = header.getAsJsonArray("sites").get(0).getAsString();
+      JsonObject result = JsonParser.parseString(bundle.get(id, 760).orElseThrow())
+          .getAsJsonObject();
+      assertEquals("PEER Set1-Case1", result.get("model").getAsString());
+      assertEquals(id, result.getAsJsonObject("site").get("id").getAsString());
+      assertEquals(760.0, result.getAsJsonObject("site").get("vs30").getAsDouble(), 0.0);
+      assertTrue(result.getAsJsonObject("hazard").has("PGA"));
+      for (int returnPeriod : SiteBundle.RETURN_PERIODS) {
+        assertTrue(result.getAsJsonObject("disagg").has(String.valueOf(returnPeriod)));
+      }
+
+      assertEquals(Optional.empty(), bundle.get(id, 530));
+      assertEquals(Optional.empty(), bundle.get("nshmp/NOT_A_SITE", 760));
+    }
+  }
+}
@@ -0,0 +1,98 @@
+package gov.usgs.earthquake.nshmp;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import gov.usgs.earthquake.nshmp.calc.Site;
+import gov.usgs.earthquake.nshmp.geo.Location;
+
+public class SiteOrderTests {
+
+  /* A 10 x 10 grid of sites, row by row. */
+  private static final List<Site> SITES = new ArrayList<>();
+
+  static {
+    for (int row = 0; row < 10; row++) {
+      for (int col = 0; col < 10; col++) {
+        SITES.add(Site.builder()
+            .location(Location.create(-120.0 + col * 0.1, 35.0 + row * 0.1))
+            .build());
+      }
+    }
+  }
+
+  @Test
+  public final void hilbertTest() {
+    int[] order = SiteOrder.HILBERT.order(SITES);
+    int[] sorted = order.clone();
+    Arrays.sort(sorted);
+    assertArrayEquals(IntStream.range(0, SITES.size()).toArray(), sorted);
+    assertFalse(Arrays.equals(sorted, order));
+  }
+
+  @Test
+  public final void inputTest() {
+    assertArrayEquals(
+        IntStream.range(0, SITES.size()).toArray(),
+        SiteOrder.INPUT.order(SITES));
+  }
+
+  @Test
+  public final void restoreTest(@TempDir Path dir) throws IOException {
+    int[] order = SiteOrder.HILBERT.order(SITES);
+    List<String> input = rows(SITES);
+    List<String> processed = new ArrayList<>();
+    processed.add("lon,lat,0.1,0.2");
+    for (int i : order) {
+      processed.add(input.get(i + 1));
+    }
+    Path file = dir.resolve("curves.csv");
+    Files.write(file, processed);
+
+    assertTrue(SiteOrder.restore(file, SITES, order));
+    assertEquals(input, Files.readAllLines(file));
+  }
+
+  @Test
+  public final void restoreShapeTest(@TempDir Path dir) throws IOException {
+    int[] order = SiteOrder.HILBERT.order(SITES);
+
+    /* Rows not in processing order are left as written. */
+    List<String> input = rows(SITES);
+    Path file = dir.resolve("curves.csv");
+    Files.write(file, input);
+    assertFalse(SiteOrder.restore(file, SITES, order));
+    assertEquals(input, Files.readAllLines(file));
+
+    /* As are files with more than one row per site. */
+    List<String> doubled = new ArrayList<>(input);
+    doubled.addAll(input.subList(1, input.size()));
+    Files.write(file, doubled);
+    assertFalse(SiteOrder.restore(file, SITES, order));
+    assertEquals(doubled, Files.readAllLines(file));
+  }
+
+  /* A header and one row per site, in the order supplied. */
+  private static List<String> rows(List<Site> sites) {
+    List<String> rows = new ArrayList<>();
+    rows.add("lon,lat,0.1,0.2");
+    for (Site site : sites) {
+      Location loc = site.location();
+      rows.add(String.format("%.5f,%.5f,%s,%s", loc.longitude, loc.latitude, 1e-2, 1e-3));
+    }
+    return rows;
+  }
+}
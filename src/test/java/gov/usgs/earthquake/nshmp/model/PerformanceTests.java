@@ -0,0 +1,327 @@
+package gov.usgs.earthquake.nshmp.model;
+
+import static gov.usgs.earthquake.nshmp.gmm.Imt.PGA;
+import static gov.usgs.earthquake.nshmp.gmm.Imt.SA0P2;
+import static gov.usgs.earthquake.nshmp.gmm.Imt.SA1P0;
+import static gov.usgs.earthquake.nshmp.gmm.Imt.SA5P0;
+import static gov.usgs.earthquake.nshmp.site.NshmpSite.BOSTON_MA;
+import static gov.usgs.earthquake.nshmp.site.NshmpSite.CHICAGO_IL;
+import static gov.usgs.earthquake.nshmp.site.NshmpSite.LOS_ANGELES_CA;
+import static gov.usgs.earthquake.nshmp.site.NshmpSite.NEW_MADRID_MO;
+import static gov.usgs.earthquake.nshmp.site.NshmpSite.NEW_YORK_NY;
+import static gov.usgs.earthquake.nshmp.site.NshmpSite.RENO_NV;
+import static gov.usgs.earthquake.nshmp.site.NshmpSite.SALT_LAKE_CITY_UT;
+import static gov.usgs.earthquake.nshmp.site.NshmpSite.SAN_FRANCISCO_CA;
+import static gov.usgs.earthquake.nshmp.site.NshmpSite.SEATTLE_WA;
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.lang.ref.Reference;
+import java.lang.reflect.Type;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalDouble;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Supplier;
+import java.util.logging.LogManager;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.function.Executable;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import com.google.common.reflect.TypeToken;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import gov.usgs.earthquake.nshmp.Maths;
+import gov.usgs.earthquake.nshmp.NamedLocation;
+import gov.usgs.earthquake.nshmp.calc.CalcConfig;
+import gov.usgs.earthquake.nshmp.calc.Hazard;
+import gov.usgs.earthquake.nshmp.calc.HazardCalcs;
+import gov.usgs.earthquake.nshmp.calc.Site;
+import gov.usgs.earthquake.nshmp.calc.Sites;
+import gov.usgs.earthquake.nshmp.gmm.Imt;
+
+/**
+ * Performance regression tests. Runs the PEER test cases and the
+ * {@link NshmTestsConus} sites, recording wall time, allocated memory, and the
+ * heap retained by the results of each, and compares them to baselines stored
+ * in {@code src/test/resources/perf/baseline.json}. A test fails when a
+ * measurement exceeds its baseline by more than the tolerance for that
+ * measurement. A summary of all measurements and their baselines is printed
+ * when the tests complete.
+ *
+ * <p>These tests are excluded from the default test task; run them with
+ * {@code ./gradlew perfTest}. Baselines are hardware dependent and are not
+ * committed; record them on the machine used for comparison by running
+ * {@code ./gradlew perfTest -Pperf.update}, which overwrites the baseline file
+ * with the current measurements. Cases without a baseline are measured and
+ * reported but skipped. CONUS cases require the model in an adjacent
+ * repository and are skipped if it is absent.
+ *
+ * <p>Calculations are run on the test thread using a direct executor so that
+ * allocation can be measured, and each case is run once to warm up before
+ * being timed.
+ *
+ * @author U.S. Geological Survey
+ */
+class PerformanceTests {
+
+  /* Allowed ratios of measured to baseline values. */
+  private static final double TIME_TOLERANCE = 1.5;
+  private static final double ALLOCATION_TOLERANCE = 1.1;
+  private static final double HEAP_TOLERANCE = 1.25;
+
+  /* Retained heap baselines below this are too small to compare by ratio. */
+  private static final double MIN_HEAP_MB = 1.0;
+
+  /* Timed runs per case; the fastest is kept. */
+  private static final int RUNS = 3;
+
+  private static final List<String> PEER_CASES = List.of(
+      "Set1-Case1",
+      "Set1-Case2-fast",
+      "Set1-Case5-fast",
+      "Set1-Case10-fast",
+      "Set1-Case11-fast",
+      "Set2-Case2a-fast",
+      "Set2-Case3a-fast",
+      "Set2-Case4a-fast");
+
+  private static final List<NamedLocation> CONUS_SITES = List.of(
+      LOS_ANGELES_CA,
+      SAN_FRANCISCO_CA,
+      SEATTLE_WA,
+      SALT_LAKE_CITY_UT,
+      RENO_NV,
+      NEW_MADRID_MO,
+      BOSTON_MA,
+      NEW_YORK_NY,
+      CHICAGO_IL);
+
+  private static final Set<Imt> CONUS_IMTS = EnumSet.of(PGA, SA0P2, SA1P0, SA5P0);
+
+  private static final Path PEER_MODEL_DIR = Paths.get("etc", "peer", "models");
+  private static final Path CONUS_MODEL_PATH = Paths.get("../nshm-conus-2018-5.1-maint");
+  private static final Path BASELINE_PATH = Paths.get("src/test/resources/perf/baseline.json");
+
+  private static final String UPDATE_PROPERTY = "perf.update";
+
+  private static final Gson GSON = new GsonBuilder()
+      .setPrettyPrinting()
+      .create();
+
+  private static final Type BASELINE_TYPE = new TypeToken<Map<String, Measurement>>() {}
+      .getType();
+
+  private static ExecutorService exec;
+  private static HazardModel conusModel;
+  private static Map<String, Measurement> baselines;
+  private static Map<String, Measurement> measurements;
+
+  @BeforeAll
+  static void setUpBeforeClass() throws IOException {
+    /* Disable model loading and calculation logging */
+    LogManager.getLogManager().reset();
+    exec = MoreExecutors.newDirectExecutorService();
+    baselines = readBaselines();
+    measurements = new ConcurrentHashMap<>();
+  }
+
+  @AfterAll
+  static void tearDownAfterClass() throws IOException {
+    exec.shutdown();
+    report();
+    if (Boolean.getBoolean(UPDATE_PROPERTY)) {
+      Map<String, Measurement> updated = new TreeMap<>(baselines);
+      updated.putAll(measurements);
+      Files.createDirectories(BASELINE_PATH.getParent());
+      try (Writer writer = Files.newBufferedWriter(BASELINE_PATH)) {
+        GSON.toJson(updated, BASELINE_TYPE, writer);
+      }
+    }
+  }
+
+  @ParameterizedTest(name = "{0}")
+  @MethodSource("peerCases")
+  final void testPeer(String modelId) throws IOException {
+    Path modelDir = PEER_MODEL_DIR.resolve(modelId);
+    HazardModel model = HazardModel.load(modelDir);
+    List<Site> sites = Sites.fromCsv(
+        modelDir.resolve("sites.csv"),
+        model.siteData(),
+        OptionalDouble.empty());
+    CalcConfig config = model.config();
+    check("peer/" + modelId, () -> {
+      List<Hazard> hazards = new ArrayList<>();
+      for (Site site : sites) {
+        hazards.add(HazardCalcs.hazard(model, config, site, exec));
+      }
+      return hazards;
+    });
+  }
+
+  @ParameterizedTest(name = "{0}")
+  @MethodSource("conusSites")
+  final void testConus(NamedLocation location) {
+    Assumptions.assumeTrue(
+        Files.isDirectory(CONUS_MODEL_PATH),
+        "CONUS model not found: " + CONUS_MODEL_PATH);
+    if (conusModel == null) {
+      conusModel = HazardModel.load(CONUS_MODEL_PATH);
+    }
+    CalcConfig config = CalcConfig.copyOf(conusModel.config())
+        .imts(CONUS_IMTS)
+        .build();
+    Site site = Site.builder().location(location.location()).build();
+    check("conus/" + location.name(), () -> HazardCalcs.hazard(conusModel, config, site, exec));
+  }
+
+  private static Stream<String> peerCases() {
+    return PEER_CASES.stream();
+  }
+
+  private static Stream<NamedLocation> conusSites() {
+    return CONUS_SITES.stream();
+  }
+
+  private static void check(String id, Supplier<?> calculation) {
+    Measurement actual = measure(calculation);
+    measurements.put(id, actual);
+    System.out.printf("%-28s %s%n", id, actual);
+
+    if (Boolean.getBoolean(UPDATE_PROPERTY)) {
+      return;
+    }
+    Measurement baseline = baselines.get(id);
+    Assumptions.assumeTrue(baseline != null, String.format(
+        "No baseline for %s; record baselines with: ./gradlew perfTest -P%s",
+        id, UPDATE_PROPERTY));
+
+    List<Executable> checks = new ArrayList<>();
+    checks.add(() -> assertWithin(id, "wall time (ms)",
+        baseline.wallMs, actual.wallMs, TIME_TOLERANCE));
+    if (baseline.allocatedMb != null && actual.allocatedMb != null) {
+      checks.add(() -> assertWithin(id, "allocation (MB)",
+          baseline.allocatedMb, actual.allocatedMb, ALLOCATION_TOLERANCE));
+    }
+    checks.add(() -> assertWithin(id, "retained heap (MB)",
+        Math.max(baseline.retainedHeapMb, MIN_HEAP_MB), actual.retainedHeapMb, HEAP_TOLERANCE));
+    assertAll(id, checks.stream());
+  }
+
+  /* Print measurements alongside their baselines. */
+  private static void report() {
+    System.out.printf("%nPerformance summary (%s)%n", BASELINE_PATH);
+    new TreeMap<>(measurements).forEach((id, actual) -> {
+      Measurement baseline = baselines.get(id);
+      System.out.printf("%-28s %s%n", id, actual);
+      System.out.printf("%-28s %s%n", "",
+          (baseline == null) ? "no baseline" : baseline + "  (baseline)");
+    });
+  }
+
+  private static void assertWithin(
+      String id,
+      String measure,
+      double baseline,
+      double actual,
+      double tolerance) {
+
+    String message = String.format(
+        "%s %s regressed: baseline:<%s> limit:<%s> but was:<%s>",
+        id, measure, baseline, Maths.round(baseline * tolerance, 1), actual);
+    assertTrue(actual <= baseline * tolerance, message);
+  }
+
+  /*
+   * Retained heap is the growth in used heap, each measured after a forced GC,
+   * across a final run whose result is held; it covers the results of a case
+   * and anything the calculation caches, but not transient garbage.
+   */
+  private static Measurement measure(Supplier<?> calculation) {
+    calculation.get();
+    long wallNanos = Long.MAX_VALUE;
+    long allocatedBytes = Long.MAX_VALUE;
+    for (int i = 0; i < RUNS; i++) {
+      long startBytes = allocatedBytes();
+      long startNanos = System.nanoTime();
+      calculation.get();
+      wallNanos = Math.min(wallNanos, System.nanoTime() - startNanos);
+      allocatedBytes = Math.min(allocatedBytes, allocatedBytes() - startBytes);
+    }
+    long startHeap = usedHeapAfterGc();
+    Object result = calculation.get();
+    long retainedBytes = Math.max(0, usedHeapAfterGc() - startHeap);
+    Reference.reachabilityFence(result);
+    return new Measurement(
+        Maths.round(wallNanos / 1e6, 1),
+        allocatedBytes < 0 ? null : Maths.round(allocatedBytes / 1048576.0, 1),
+        Maths.round(retainedBytes / 1048576.0, 1));
+  }
+
+  /* Bytes allocated by the test thread, if supported by the JVM; otherwise -1. */
+  private static long allocatedBytes() {
+    ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    if (threads instanceof com.sun.management.ThreadMXBean) {
+      return ((com.sun.management.ThreadMXBean) threads)
+          .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+    return -1;
+  }
+
+  private static long usedHeapAfterGc() {
+    MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    System.gc();
+    return memory.getHeapMemoryUsage().getUsed();
+  }
+
+  private static Map<String, Measurement> readBaselines() throws IOException {
+    if (!Files.exists(BASELINE_PATH)) {
+      return Map.of();
+    }
+    try (Reader reader = Files.newBufferedReader(BASELINE_PATH)) {
+      Map<String, Measurement> map = GSON.fromJson(reader, BASELINE_TYPE);
+      return (map == null) ? Map.of() : map;
+    }
+  }
+
+  private static final class Measurement {
+
+    final double wallMs;
+    final Double allocatedMb;
+    final double retainedHeapMb;
+
+    Measurement(double wallMs, Double allocatedMb, double retainedHeapMb) {
+      this.wallMs = wallMs;
+      this.allocatedMb = allocatedMb;
+      this.retainedHeapMb = retainedHeapMb;
+    }
+
+    @Override
+    public String toString() {
+      return String.format(
+          "wall: %10.1f ms  allocated: %10s MB  retained heap: %8.1f MB",
+          wallMs, allocatedMb, retainedHeapMb);
+    }
+  }
+}
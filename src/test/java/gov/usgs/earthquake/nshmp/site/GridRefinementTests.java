@@ -0,0 +1,72 @@
+package gov.usgs.earthquake.nshmp.site;
+
+import static gov.usgs.earthquake.nshmp.site.NshmpPolygon.WASATCH;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.OptionalDouble;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import gov.usgs.earthquake.nshmp.geo.Location;
+import gov.usgs.earthquake.nshmp.model.SiteData;
+
+public class GridRefinementTests {
+
+  private static final GridSites GRID =
+      GridSites.create(WASATCH, 0.25, SiteData.EMPTY, OptionalDouble.empty());
+
+  @Test
+  public final void unrefinedTest() {
+    GridRefinement refinement = GridRefinement.create(0, 0.1);
+    assertFalse(refinement.enabled());
+    Set<Location> computed = new HashSet<>();
+    refinement.refine(GRID, site -> {
+      assertTrue(computed.add(site.location()));
+      return new double[] { 1.0 };
+    });
+    assertEquals(GRID.size(), computed.size());
+  }
+
+  @Test
+  public final void uniformTest() {
+    /* Constant values only require the corners of coarse cells. */
+    GridRefinement refinement = GridRefinement.create(2, 0.1);
+    assertTrue(refinement.enabled());
+    Set<Location> computed = new HashSet<>();
+    List<GridRefinement.Cell> cells = refinement.refine(GRID, site -> {
+      assertTrue(computed.add(site.location()));
+      assertTrue(WASATCH.contains(site.location()));
+      return new double[] { 1.0 };
+    });
+    assertTrue(computed.size() < GRID.size());
+    assertTrue(cells.stream().anyMatch(cell -> cell.size == 1.0));
+  }
+
+  @Test
+  public final void stepTest() {
+    /* Cells spanning a step in values are refined to the grid spacing. */
+    double step = -112.1;
+    GridRefinement refinement = GridRefinement.create(2, 0.1);
+    List<GridRefinement.Cell> cells = refinement.refine(
+        GRID,
+        site -> new double[] { site.location().longitude < step ? 1.0 : 2.0 });
+    for (GridRefinement.Cell cell : cells) {
+      if (cell.min.longitude < step && cell.min.longitude + cell.size > step) {
+        assertEquals(0.25, cell.size, 0.0);
+      }
+    }
+    assertTrue(cells.stream().anyMatch(cell -> cell.size > 0.25));
+  }
+
+  @Test
+  public final void createTest() {
+    assertThrows(IllegalArgumentException.class, () -> GridRefinement.create(-1, 0.1));
+    assertThrows(IllegalArgumentException.class, () -> GridRefinement.create(2, 0.0));
+  }
+}
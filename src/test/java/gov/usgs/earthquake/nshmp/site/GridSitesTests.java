@@ -0,0 +1,105 @@
+package gov.usgs.earthquake.nshmp.site;
+
+import static gov.usgs.earthquake.nshmp.site.NshmpPolygon.LA_BASIN;
+import static gov.usgs.earthquake.nshmp.site.NshmpPolygon.WASATCH;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.OptionalDouble;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.google.common.collect.Lists;
+
+import gov.usgs.earthquake.nshmp.calc.Site;
+import gov.usgs.earthquake.nshmp.calc.Sites;
+import gov.usgs.earthquake.nshmp.geo.Location;
+import gov.usgs.earthquake.nshmp.model.SiteData;
+
+public class GridSitesTests {
+
+  @Test
+  public final void gridTest() {
+    /*
+     * Wasatch is a 2.5° x 3.5° rectangle aligned to the grid; ray casting
+     * includes nodes on its south and west edges but not its north and east.
+     */
+    GridSites grid = GridSites.create(WASATCH, 0.25, SiteData.EMPTY, OptionalDouble.empty());
+    assertEquals(10 * 14, grid.size());
+    List<Site> sites = Lists.newArrayList(grid);
+    assertEquals(grid.size(), sites.size());
+    assertEquals(-113.25, sites.get(0).location().longitude, 0.0);
+    assertEquals(39.0, sites.get(0).location().latitude, 0.0);
+    assertEquals(-111.0, sites.get(sites.size() - 1).location().longitude, 0.0);
+    assertEquals(42.25, sites.get(sites.size() - 1).location().latitude, 0.0);
+  }
+
+  @Test
+  public final void polygonTest() {
+    GridSites grid = GridSites.create(LA_BASIN, 0.05, SiteData.EMPTY, OptionalDouble.of(530.0));
+    for (Site site : grid) {
+      assertTrue(LA_BASIN.contains(site.location()));
+      assertEquals(530.0, site.vs30(), 0.0);
+    }
+  }
+
+  @Test
+  public final void shardTest() {
+    GridSites grid = GridSites.create(LA_BASIN, 0.02, SiteData.EMPTY, OptionalDouble.empty());
+    List<Site> shards = new ArrayList<>();
+    int count = 7;
+    for (int i = 0; i < count; i++) {
+      shards.addAll(grid.shard(i, count));
+    }
+    List<Site> sites = Lists.newArrayList(grid);
+    assertEquals(sites.size(), shards.size());
+    for (int i = 0; i < sites.size(); i++) {
+      assertEquals(sites.get(i).location(), shards.get(i).location());
+    }
+  }
+
+  @Test
+  public final void geoJsonTest() throws IOException {
+    /* Map regions must yield the same sites, in the same order, as nshmp-lib. */
+    for (Path path : MAP_FILES) {
+      GridSites grid = GridSites.fromGeoJson(path, SiteData.EMPTY, OptionalDouble.empty())
+          .orElseThrow();
+      List<Site> expected = Sites.fromGeoJson(path, SiteData.EMPTY, OptionalDouble.empty());
+      assertEquals(locations(expected), locations(grid), path.toString());
+    }
+  }
+
+  @Test
+  public final void geoJsonHolesTest(@TempDir Path dir) throws IOException {
+    Path path = dir.resolve("holes.geojson");
+    Files.writeString(path, "{\"type\": \"FeatureCollection\", \"features\": [{" +
+        "\"type\": \"Feature\", \"properties\": {\"spacing\": 0.1}," +
+        "\"geometry\": {\"type\": \"Polygon\", \"coordinates\": [" +
+        "[[-123.0, 37.0], [-121.0, 37.0], [-121.0, 39.0], [-123.0, 39.0], [-123.0, 37.0]]," +
+        "[[-122.5, 37.5], [-121.5, 37.5], [-121.5, 38.5], [-122.5, 38.5], [-122.5, 37.5]]" +
+        "]}}]}");
+    assertTrue(GridSites.fromGeoJson(path, SiteData.EMPTY, OptionalDouble.empty()).isEmpty());
+  }
+
+  private static final List<Path> MAP_FILES = List.of(
+      Paths.get("etc/examples/4-hazard-map/map.geojson"),
+      Paths.get("etc/examples/5-complex-model/map.geojson"));
+
+  /* Site locations rounded to avoid spurious floating point differences. */
+  private static List<String> locations(Collection<Site> sites) {
+    List<String> locations = new ArrayList<>();
+    for (Site site : sites) {
+      Location loc = site.location();
+      locations.add(String.format("%.5f,%.5f", loc.longitude, loc.latitude));
+    }
+    return locations;
+  }
+}
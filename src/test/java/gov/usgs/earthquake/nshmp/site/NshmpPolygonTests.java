@@ -0,0 +1,155 @@
+package gov.usgs.earthquake.nshmp.site;
+
+import static gov.usgs.earthquake.nshmp.site.NshmpPolygon.ALASKA;
+import static gov.usgs.earthquake.nshmp.site.NshmpPolygon.ALASKA_CLIP;
+import static gov.usgs.earthquake.nshmp.site.NshmpPolygon.CEUS_CLIP;
+import static gov.usgs.earthquake.nshmp.site.NshmpPolygon.CONTERMINOUS_US;
+import static gov.usgs.earthquake.nshmp.site.NshmpPolygon.CONUS_CLIP;
+import static gov.usgs.earthquake.nshmp.site.NshmpPolygon.CYBERSHAKE;
+import static gov.usgs.earthquake.nshmp.site.NshmpPolygon.HAWAII;
+import static gov.usgs.earthquake.nshmp.site.NshmpPolygon.HAWAII_CLIP;
+import static gov.usgs.earthquake.nshmp.site.NshmpPolygon.LA_BASIN;
+import static gov.usgs.earthquake.nshmp.site.NshmpPolygon.NEW_MADRID;
+import static gov.usgs.earthquake.nshmp.site.NshmpPolygon.PUGET;
+import static gov.usgs.earthquake.nshmp.site.NshmpPolygon.SF_BAY;
+import static gov.usgs.earthquake.nshmp.site.NshmpPolygon.UCERF3_NSHM14;
+import static gov.usgs.earthquake.nshmp.site.NshmpPolygon.UCERF3_NSHM_CLIP;
+import static gov.usgs.earthquake.nshmp.site.NshmpPolygon.UCERF3_RELM;
+import static gov.usgs.earthquake.nshmp.site.NshmpPolygon.WASATCH;
+import static gov.usgs.earthquake.nshmp.site.NshmpPolygon.WUS_CLIP;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.EnumSet;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.common.collect.Lists;
+
+import gov.usgs.earthquake.nshmp.geo.Location;
+import gov.usgs.earthquake.nshmp.site.NshmpPolygon.Resolution;
+
+public class NshmpPolygonTests {
+
+  @Test
+  public final void regionsContainingTest() {
+    assertEquals(
+        EnumSet.of(CONUS_CLIP, WUS_CLIP, CONTERMINOUS_US, LA_BASIN, CYBERSHAKE,
+            UCERF3_RELM, UCERF3_NSHM14, UCERF3_NSHM_CLIP),
+        NshmpPolygon.regionsContaining(NshmpSite.LOS_ANGELES_CA.location()));
+    assertEquals(
+        EnumSet.of(CONUS_CLIP, CEUS_CLIP, CONTERMINOUS_US, NEW_MADRID),
+        NshmpPolygon.regionsContaining(NshmpSite.MEMPHIS_TN.location()));
+    assertEquals(
+        EnumSet.of(CONUS_CLIP, WUS_CLIP, CONTERMINOUS_US, PUGET),
+        NshmpPolygon.regionsContaining(NshmpSite.SEATTLE_WA.location()));
+    assertEquals(
+        EnumSet.of(CONUS_CLIP, CEUS_CLIP, WUS_CLIP, CONTERMINOUS_US, WASATCH),
+        NshmpPolygon.regionsContaining(NshmpSite.SALT_LAKE_CITY_UT.location()));
+    assertEquals(
+        EnumSet.of(HAWAII_CLIP, HAWAII),
+        NshmpPolygon.regionsContaining(NshmpSite.HONOLULU_HI.location()));
+    assertTrue(NshmpPolygon.regionsContaining(Location.create(-140.0, 30.0)).isEmpty());
+  }
+
+  @Test
+  public final void antimeridianTest() {
+    assertEquals(
+        EnumSet.of(ALASKA_CLIP, ALASKA),
+        NshmpPolygon.regionsContaining(NshmpSite.ADAK_AK.location()));
+    assertEquals(
+        EnumSet.of(ALASKA_CLIP, ALASKA),
+        NshmpPolygon.regionsContaining(Location.create(183.3, 51.9)));
+  }
+
+  @Test
+  public final void containsTest() {
+    /* Compare banded ray casting with a test of every edge */
+    List<NshmpPolygon> polygons = List.of(
+        CONTERMINOUS_US, LA_BASIN, SF_BAY, UCERF3_RELM, UCERF3_NSHM_CLIP);
+    for (NshmpPolygon polygon : polygons) {
+      for (double lat = 24.0; lat <= 50.0; lat += 0.13) {
+        for (double lon = -126.0; lon <= -65.0; lon += 0.17) {
+          Location loc = Location.create(lon, lat);
+          assertEquals(
+              contains(polygon, loc.longitude, loc.latitude),
+              polygon.contains(loc),
+              polygon.name() + " " + loc);
+        }
+      }
+    }
+  }
+
+  @Test
+  public final void simplifiedTest() {
+    for (NshmpPolygon polygon : NshmpPolygon.values()) {
+      List<Location> full = Lists.newArrayList(polygon.coordinates());
+      assertSame(polygon.coordinates(), polygon.coordinates(Resolution.FULL));
+      int previous = full.size();
+      for (Resolution resolution : Resolution.values()) {
+        List<Location> simplified = Lists.newArrayList(polygon.coordinates(resolution));
+        assertTrue(simplified.size() <= previous, polygon.name() + " " + resolution);
+        assertEquals(full.get(0), simplified.get(0));
+        assertEquals(
+            full.get(0).equals(full.get(full.size() - 1)),
+            simplified.get(0).equals(simplified.get(simplified.size() - 1)));
+        assertTrue(full.containsAll(simplified));
+        /* Every omitted vertex is within tolerance of the outline */
+        for (Location loc : full) {
+          assertTrue(
+              distance(simplified, loc) <= resolution.tolerance() + 1e-9,
+              polygon.name() + " " + resolution + " " + loc);
+        }
+        previous = simplified.size();
+      }
+    }
+    assertTrue(CONTERMINOUS_US.coordinates(Resolution.LOW).size() <
+        CONTERMINOUS_US.coordinates().size());
+  }
+
+  @Test
+  public final void boundsTest() {
+    for (NshmpPolygon polygon : NshmpPolygon.values()) {
+      List<Location> locs = Lists.newArrayList(polygon.coordinates());
+      assertEquals(
+          locs.stream().mapToDouble(loc -> loc.longitude).min().getAsDouble(),
+          polygon.bounds().min.longitude);
+      assertEquals(
+          locs.stream().mapToDouble(loc -> loc.latitude).max().getAsDouble(),
+          polygon.bounds().max.latitude);
+    }
+  }
+
+  private static double distance(List<Location> outline, Location loc) {
+    double min = Double.POSITIVE_INFINITY;
+    for (int i = 0; i < outline.size(); i++) {
+      Location a = outline.get(i);
+      Location b = outline.get((i + 1) % outline.size());
+      min = Math.min(min, PolygonSimplifier.segmentDistance(
+          loc.longitude, loc.latitude,
+          a.longitude, a.latitude,
+          b.longitude, b.latitude));
+    }
+    return min;
+  }
+
+  private static boolean contains(NshmpPolygon polygon, double lon, double lat) {
+    List<Location> locs = Lists.newArrayList(polygon.coordinates());
+    boolean inside = false;
+    for (int i = 0; i < locs.size(); i++) {
+      Location a = locs.get(i);
+      Location b = locs.get((i + 1) % locs.size());
+      if ((a.latitude > lat) != (b.latitude > lat)) {
+        double crossing = a.longitude + (lat - a.latitude) * (b.longitude - a.longitude) /
+            (b.latitude - a.latitude);
+        if (lon < crossing) {
+          inside = !inside;
+        }
+      }
+    }
+    return inside;
+  }
+
+}
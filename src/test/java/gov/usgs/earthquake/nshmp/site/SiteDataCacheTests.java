@@ -0,0 +1,94 @@
+package gov.usgs.earthquake.nshmp.site;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import gov.usgs.earthquake.nshmp.geo.Location;
+import gov.usgs.earthquake.nshmp.model.SiteData;
+
+public class SiteDataCacheTests {
+
+  private static final double RESOLUTION = 0.0001;
+
+  @Test
+  public final void snapTest() {
+    List<Location> nodes = new ArrayList<>();
+    SiteDataCache cache = cache(nodes);
+
+    /* Locations within half a grid spacing share a node. */
+    cache.get(Location.create(-117.00004, 34.00004));
+    cache.get(Location.create(-116.99996, 33.99996));
+    assertEquals(1, nodes.size());
+    assertNode(-117.0, 34.0, nodes.get(0));
+
+    cache.get(Location.create(-117.00006, 34.0));
+    assertEquals(2, nodes.size());
+    assertNode(-117.0001, 34.0, nodes.get(1));
+    assertEquals(1, cache.stats().hitCount());
+  }
+
+  @Test
+  public final void keyTest() {
+    List<Location> nodes = new ArrayList<>();
+    SiteDataCache cache = cache(nodes);
+
+    /* Nodes in each quadrant, and either side of zero, have distinct keys. */
+    cache.get(Location.create(-118.0, 34.0));
+    cache.get(Location.create(118.0, 34.0));
+    cache.get(Location.create(-118.0, -34.0));
+    cache.get(Location.create(118.0, -34.0));
+    cache.get(Location.create(-0.0001, 0.0));
+    cache.get(Location.create(0.0001, 0.0));
+    cache.get(Location.create(-179.9999, -89.9999));
+    assertEquals(7, nodes.size());
+    assertNode(-118.0, 34.0, nodes.get(0));
+    assertNode(118.0, 34.0, nodes.get(1));
+    assertNode(-118.0, -34.0, nodes.get(2));
+    assertNode(118.0, -34.0, nodes.get(3));
+    assertNode(-0.0001, 0.0, nodes.get(4));
+    assertNode(0.0001, 0.0, nodes.get(5));
+    assertNode(-179.9999, -89.9999, nodes.get(6));
+  }
+
+  @Test
+  public final void getAllTest() {
+    List<Location> nodes = new ArrayList<>();
+    SiteDataCache cache = cache(nodes);
+
+    Location a = Location.create(-122.30001, 47.60001);
+    Location b = Location.create(-122.29999, 47.59999);
+    Location c = Location.create(-122.4, 47.6);
+    Map<Location, SiteData.Values> values = cache.getAll(List.of(a, b, c));
+    assertEquals(List.of(a, b, c), List.copyOf(values.keySet()));
+    assertEquals(2, nodes.size());
+    assertSame(values.get(a), values.get(b));
+
+    /* Later lookups at a cached node are not repeated. */
+    cache.getAll(List.of(a, c));
+    cache.get(b);
+    assertEquals(2, nodes.size());
+  }
+
+  /* A cache that records the node of each underlying lookup. */
+  private static SiteDataCache cache(List<Location> nodes) {
+    return new SiteDataCache(
+        SiteData.EMPTY,
+        location -> {
+          nodes.add(location);
+          return SiteData.EMPTY.get(location);
+        },
+        RESOLUTION,
+        100);
+  }
+
+  private static void assertNode(double lon, double lat, Location node) {
+    assertEquals(lon, node.longitude, 0.0);
+    assertEquals(lat, node.latitude, 0.0);
+  }
+}